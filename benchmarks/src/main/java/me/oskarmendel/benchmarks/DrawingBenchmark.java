@@ -0,0 +1,111 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import me.oskarmendel.fractals.PythagorasTree;
+import me.oskarmendel.fractals.SierpinskiTriangle;
+import me.oskarmendel.util.geometry.Rectangle;
+
+/**
+ * Benchmarks drawing the Pythagoras tree line by line and as a single path,
+ * the Sierpinski triangle and rectangles to the GraphicsContext of an
+ * offscreen Canvas. The canvas is never shown, so this measures building the
+ * drawing commands, which is what the fractals do on the JavaFX application
+ * thread, and not rasterizing them. Every operation clears the whole canvas
+ * first like FractalView does, which also drops the commands recorded so far.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name DrawingBenchmark.java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DrawingBenchmark {
+
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+
+	@Param({ "0.0", "0.5" })
+	public double angle;
+
+	private final PythagorasTree tree = new PythagorasTree();
+	private final SierpinskiTriangle triangle = new SierpinskiTriangle();
+
+	private GraphicsContext gc;
+	private Rectangle rectangle;
+
+	@Setup
+	public void setUp() {
+		gc = new Canvas(WIDTH, HEIGHT).getGraphicsContext2D();
+		rectangle = new Rectangle(300, 200, 200, 100, angle);
+	}
+
+	@Benchmark
+	public GraphicsContext drawTree() {
+		gc.clearRect(0, 0, WIDTH, HEIGHT);
+		tree.drawTree(WIDTH, HEIGHT, angle, gc);
+		return gc;
+	}
+
+	@Benchmark
+	public GraphicsContext drawTreePath() {
+		gc.clearRect(0, 0, WIDTH, HEIGHT);
+		tree.drawTree(tree.generateTree(WIDTH, HEIGHT, angle), gc);
+		return gc;
+	}
+
+	@Benchmark
+	public GraphicsContext drawTriangle() {
+		gc.clearRect(0, 0, WIDTH, HEIGHT);
+		triangle.drawTriangle(WIDTH, HEIGHT, gc);
+		return gc;
+	}
+
+	@Benchmark
+	public GraphicsContext drawRectangle() {
+		gc.clearRect(0, 0, WIDTH, HEIGHT);
+		rectangle.draw(gc);
+		return gc;
+	}
+}
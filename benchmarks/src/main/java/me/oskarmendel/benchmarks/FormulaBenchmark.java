@@ -0,0 +1,117 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.oskarmendel.formula.Formula;
+import me.oskarmendel.formula.KernelCompiler;
+import me.oskarmendel.fractals.FormulaFractal;
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.Viewport;
+
+/**
+ * Benchmarks the compiled kernel of z^2 + c against the hand written loop of
+ * the Julia Fractal and against interpreting the same formula, generating the
+ * same 800x600 frame on one thread.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name FormulaBenchmark.java
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class FormulaBenchmark {
+
+	private static final int WIDTH = 800;
+	private static final int HEIGHT = 600;
+	private static final double REAL_SEED = -0.7;
+	private static final double IMAGINARY_SEED = 0.27015;
+
+	@Param({ "100", "1000" })
+	public int maxIterations;
+
+	private JuliaFractal julia;
+	private FormulaFractal compiled;
+	private FormulaFractal interpreted;
+	private int[] iterations;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		julia = new JuliaFractal();
+		julia.setParallelism(1);
+		julia.setMaxIterations(maxIterations);
+		julia.setSymmetry(false);
+
+		compiled = new FormulaFractal(Formula.QUADRATIC);
+		compiled.setParallelism(1);
+		compiled.setMaxIterations(maxIterations);
+
+		if (!KernelCompiler.isCompiled(compiled.getKernel())) {
+			throw new IllegalStateException("The formula was not compiled, run the benchmark on a JDK.");
+		}
+
+		interpreted = new FormulaFractal(Formula.QUADRATIC, KernelCompiler.interpret(Formula.QUADRATIC));
+		interpreted.setParallelism(1);
+		interpreted.setMaxIterations(maxIterations);
+
+		iterations = new int[WIDTH * HEIGHT];
+	}
+
+	@Benchmark
+	public int[] handWritten() {
+		julia.generateStrip(WIDTH, HEIGHT, 0, HEIGHT, REAL_SEED, IMAGINARY_SEED, Viewport.DEFAULT, iterations);
+		return iterations;
+	}
+
+	@Benchmark
+	public int[] compiled() {
+		compiled.generateStrip(WIDTH, HEIGHT, 0, HEIGHT, REAL_SEED, IMAGINARY_SEED, Viewport.DEFAULT, iterations);
+		return iterations;
+	}
+
+	@Benchmark
+	public int[] interpreted() {
+		interpreted.generateStrip(WIDTH, HEIGHT, 0, HEIGHT, REAL_SEED, IMAGINARY_SEED, Viewport.DEFAULT,
+				iterations);
+		return iterations;
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.oskarmendel.util.ComplexNumber;
+import me.oskarmendel.util.geometry.Point;
+
+/**
+ * Benchmarks the small value classes the fractals are built from: iterating
+ * a Julia Fractal pixel with a ComplexNumber and rotating Points.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name GeometryBenchmark.java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeometryBenchmark {
+
+	private static final double REAL_SEED = -0.8;
+	private static final double IMAGINARY_SEED = 0.156;
+
+	/**
+	 * Starting points that escape quickly, slowly and never.
+	 */
+	@Param({ "1.0,1.0", "0.3,0.2", "0.0,0.0" })
+	public String start;
+
+	@Param({ "100", "1000" })
+	public int maxIterations;
+
+	// Not final so the JIT can not fold the rotation into a constant.
+	public double angle = 0.5;
+
+	private double re;
+	private double im;
+
+	@Setup
+	public void setUp() {
+		re = Double.parseDouble(start.substring(0, start.indexOf(',')));
+		im = Double.parseDouble(start.substring(start.indexOf(',') + 1));
+	}
+
+	@Benchmark
+	public int iterateComplexNumber() {
+		ComplexNumber z = new ComplexNumber(re, im);
+		int i = 0;
+
+		while (i < maxIterations && z.getAbs() <= 2) {
+			double real = z.getReal();
+			double imaginary = z.getImaginary();
+
+			z.setReal(real * real - imaginary * imaginary + REAL_SEED);
+			z.setImaginary(2 * real * imaginary + IMAGINARY_SEED);
+			i++;
+		}
+		return i;
+	}
+
+	@Benchmark
+	public Point rotatePoint() {
+		Point point = new Point(100, 50);
+
+		point.rotate(angle);
+		return point;
+	}
+
+	@Benchmark
+	public Point rotateAroundMidPoint() {
+		Point center = Point.midPoint(new Point(0, 0), new Point(200, 100));
+		Point point = new Point(100 - center.getX(), 50 - center.getY());
+
+		point.rotate(angle);
+		return new Point(point.getX() + center.getX(), point.getY() + center.getY());
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import me.oskarmendel.fractals.JuliaFractal;
+
+/**
+ * Benchmarks generating whole Julia Fractal images with
+ * {@link JuliaFractal#generateFractal(int, int, double, double)}. The seeds
+ * range from a mostly exterior fractal to one with a large interior that
+ * iterates every pixel to the maximum.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name JuliaFractalBenchmark.java
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JuliaFractalBenchmark {
+
+	@Param({ "-0.8,0.156", "0.285,0.01", "-0.4,0.6" })
+	public String seed;
+
+	@Param({ "800x600", "1920x1080" })
+	public String size;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	@Param({ "100", "1000" })
+	public int maxIterations;
+
+	private JuliaFractal fractal;
+	private int width;
+	private int height;
+	private double realSeed;
+	private double imaginarySeed;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		realSeed = Double.parseDouble(seed.substring(0, seed.indexOf(',')));
+		imaginarySeed = Double.parseDouble(seed.substring(seed.indexOf(',') + 1));
+		width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+		height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+
+		fractal = new JuliaFractal();
+		fractal.setParallelism(threads);
+		fractal.setMaxIterations(maxIterations);
+		fractal.setAdaptiveIterations(false);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		// Parallelism one shuts the pool of the fractal down.
+		fractal.setParallelism(1);
+	}
+
+	@Benchmark
+	public BufferedImage generateFractal() {
+		return fractal.generateFractal(width, height, realSeed, imaginarySeed);
+	}
+}
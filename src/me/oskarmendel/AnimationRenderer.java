@@ -0,0 +1,206 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+
+import me.oskarmendel.animation.SeedPath;
+import me.oskarmendel.animation.SeedSweepJob;
+import me.oskarmendel.fractals.Viewport;
+import me.oskarmendel.render.Palette;
+
+/**
+ * Command line entry point that renders a seed sweep of a Julia Fractal as a
+ * numbered sequence of PNG images without starting JavaFX, the same sweep the
+ * scroll bar of the application makes. It reports how many frames were
+ * rendered per second and how long the frames took.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name AnimationRenderer.java
+ */
+public class AnimationRenderer {
+
+	private static final String USAGE = "Usage: AnimationRenderer [options] <output directory>\n"
+			+ "  --keyframes=T:RE,IM;...  Seeds at given times (default 0:-1,0.27015;1:1,0.27015)\n"
+			+ "  --interpolation=NAME     linear or smooth (default smooth)\n"
+			+ "  --frames=N               Number of frames (default 120)\n"
+			+ "  --size=WxH               Size of every frame in pixels (default 800x600)\n"
+			+ "  --center=RE,IM           Center of the viewport (default 0,0)\n"
+			+ "  --scale=S                Half the width of the viewport (default 1)\n"
+			+ "  --iterations=N           Maximum number of iterations (default 100)\n"
+			+ "  --threads=N              Threads splitting the rows of frames (default all processors)\n"
+			+ "  --frames-in-flight=N     Frames rendered at the same time (default 2)\n"
+			+ "  --palette=NAME           gray or fire, spread over the iterations (default gray)";
+
+	private final List<SeedPath.Keyframe> keyframes = new ArrayList<SeedPath.Keyframe>();
+	private SeedPath.Interpolation interpolation = SeedPath.Interpolation.SMOOTH;
+	private int frames = 120;
+	private int width = 800;
+	private int height = 600;
+	private double centerRe = 0;
+	private double centerIm = 0;
+	private double scale = 1;
+	private int maxIterations = 100;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int framesInFlight = 2;
+	private Palette palette = Palette.GRAY;
+	private File output;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		AnimationRenderer renderer = new AnimationRenderer();
+
+		try {
+			renderer.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+
+		try {
+			renderer.render();
+		} catch (IOException | ExecutionException e) {
+			System.err.println("Rendering failed: " + e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads the options and the output directory from the command line.
+	 * 
+	 * @param args - The command line arguments.
+	 * @throws IllegalArgumentException if an argument is not valid.
+	 */
+	private void parse(String[] args) {
+		output = CommandLine.parse(args, "output directory", this::option);
+
+		if (frames < 1 || width < 1 || height < 1 || maxIterations < 1 || threads < 1 || framesInFlight < 1
+				|| !(scale > 0)) {
+			throw new IllegalArgumentException(
+					"Frames, size, iterations, threads, frames in flight and scale must be positive.");
+		}
+
+		// The default sweeps the real seed like the scroll bar does.
+		if (keyframes.isEmpty()) {
+			keyframes.add(new SeedPath.Keyframe(0, -1, 0.27015));
+			keyframes.add(new SeedPath.Keyframe(1, 1, 0.27015));
+		}
+	}
+
+	/**
+	 * Reads an option from the command line.
+	 * 
+	 * @param name - Name of the option.
+	 * @param value - Value of the option.
+	 * @return False if there is no option of that name.
+	 * @throws IllegalArgumentException if the value is not valid.
+	 */
+	private boolean option(String name, String value) {
+		switch (name) {
+		case "keyframes":
+			for (String keyframe : value.split(";")) {
+				String seed = CommandLine.second(keyframe, ":");
+				keyframes.add(new SeedPath.Keyframe(Double.parseDouble(CommandLine.first(keyframe, ":")),
+						Double.parseDouble(CommandLine.first(seed, ",")),
+						Double.parseDouble(CommandLine.second(seed, ","))));
+			}
+			break;
+		case "interpolation":
+			interpolation = SeedPath.Interpolation.valueOf(value.toUpperCase(Locale.ROOT));
+			break;
+		case "frames":
+			frames = Integer.parseInt(value);
+			break;
+		case "size":
+			width = Integer.parseInt(CommandLine.first(value, "x"));
+			height = Integer.parseInt(CommandLine.second(value, "x"));
+			break;
+		case "center":
+			centerRe = Double.parseDouble(CommandLine.first(value, ","));
+			centerIm = Double.parseDouble(CommandLine.second(value, ","));
+			break;
+		case "scale":
+			scale = Double.parseDouble(value);
+			break;
+		case "iterations":
+			maxIterations = Integer.parseInt(value);
+			break;
+		case "threads":
+			threads = Integer.parseInt(value);
+			break;
+		case "frames-in-flight":
+			framesInFlight = Integer.parseInt(value);
+			break;
+		case "palette":
+			palette = Palette.named(value);
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Renders the frames and reports how fast they were rendered.
+	 * 
+	 * @throws IOException if a frame could not be written.
+	 * @throws ExecutionException if a frame could not be rendered.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private void render() throws IOException, ExecutionException, InterruptedException {
+		SeedSweepJob job = new SeedSweepJob(new SeedPath(keyframes, interpolation), frames, width, height,
+				new Viewport(centerRe, centerIm, scale, 0), maxIterations, palette);
+
+		long start = System.nanoTime();
+		long[] times = job.render(output, framesInFlight, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		Arrays.sort(times);
+		System.out.println(String.format(Locale.ROOT,
+				"Rendered %d frames of %dx%d in %.2f s, %.2f frames/s on %d threads with %d frames in flight",
+				frames, width, height, seconds, frames / seconds, threads, framesInFlight));
+		System.out.println(String.format(Locale.ROOT,
+				"Frame time ms: min %.1f, median %.1f, p90 %.1f, p99 %.1f, max %.1f", times[0] / 1e6,
+				percentile(times, 0.5) / 1e6, percentile(times, 0.9) / 1e6, percentile(times, 0.99) / 1e6,
+				times[times.length - 1] / 1e6));
+	}
+
+	/**
+	 * Returns a percentile of sorted values, the nearest value at or above it.
+	 */
+	private static long percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+	}
+}
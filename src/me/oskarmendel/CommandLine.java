@@ -0,0 +1,125 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel;
+
+import java.io.File;
+
+/**
+ * CommandLine reads the arguments the command line entry points share: options
+ * written as --name=value in any order and a single output path.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name CommandLine.java
+ */
+final class CommandLine {
+
+	private CommandLine() {
+	}
+
+	/**
+	 * Hands every option to the specified handler and returns the output path.
+	 * 
+	 * @param args - The command line arguments.
+	 * @param output - What the output path names, used in the messages.
+	 * @param handler - Reads every option.
+	 * @return The output path.
+	 * @throws IllegalArgumentException if an argument is not valid.
+	 */
+	static File parse(String[] args, String output, OptionHandler handler) {
+		File path = null;
+
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				if (path != null) {
+					throw new IllegalArgumentException("More than one " + output + ": " + arg);
+				}
+				path = new File(arg);
+				continue;
+			}
+
+			int equals = arg.indexOf('=');
+			if (equals < 0) {
+				throw new IllegalArgumentException("Missing value: " + arg);
+			}
+
+			try {
+				if (!handler.option(arg.substring(2, equals), arg.substring(equals + 1))) {
+					throw new IllegalArgumentException("Unknown option: " + arg);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number: " + arg);
+			}
+		}
+
+		if (path == null) {
+			throw new IllegalArgumentException("No " + output + ".");
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the part of a value before the separator.
+	 * 
+	 * @param value - Two values separated by the separator.
+	 * @param separator - Separates the values.
+	 * @return The first value.
+	 * @throws IllegalArgumentException if the value has no separator.
+	 */
+	static String first(String value, String separator) {
+		int index = value.indexOf(separator);
+
+		if (index < 0) {
+			throw new IllegalArgumentException("Expected two values separated by " + separator + ": " + value);
+		}
+		return value.substring(0, index);
+	}
+
+	/**
+	 * Returns the part of a value after the separator.
+	 * 
+	 * @param value - Two values separated by the separator.
+	 * @param separator - Separates the values.
+	 * @return The second value.
+	 */
+	static String second(String value, String separator) {
+		return value.substring(value.indexOf(separator) + 1);
+	}
+
+	/**
+	 * Reads the options of an entry point.
+	 */
+	interface OptionHandler {
+
+		/**
+		 * Reads an option.
+		 * 
+		 * @param name - Name of the option, without the leading dashes.
+		 * @param value - Value of the option.
+		 * @return False if there is no option of that name.
+		 * @throws IllegalArgumentException if the value is not valid.
+		 */
+		boolean option(String name, String value);
+	}
+}
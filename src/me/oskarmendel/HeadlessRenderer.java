@@ -0,0 +1,413 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import me.oskarmendel.cluster.TileCoordinator;
+import me.oskarmendel.formula.Formula;
+import me.oskarmendel.formula.KernelCompiler;
+import me.oskarmendel.fractals.FormulaFractal;
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.Viewport;
+import me.oskarmendel.render.Colorizer;
+import me.oskarmendel.render.MappedIterationBuffer;
+import me.oskarmendel.render.Palette;
+import me.oskarmendel.render.PngStreamWriter;
+import me.oskarmendel.render.RenderJournal;
+
+/**
+ * Command line entry point that renders a Julia Fractal straight to a PNG
+ * file without starting JavaFX. The image is rendered in strips of rows on a
+ * pool of threads and every strip is written to the file as soon as the
+ * strips above it are, so only a few strips are held in memory no matter how
+ * large the image is.
+ * 
+ * With a checkpoint file the iteration counts are first rendered into that
+ * memory mapped file, and a journal next to it records every completed strip.
+ * A render that was stopped resumes with the strips it had not completed when
+ * it is started again with the same options, and the image is then written
+ * from the file.
+ * 
+ * With a list of workers the iteration counts are rendered by TileWorker
+ * processes instead, and only colored and written by this process.
+ * 
+ * With a formula the image shows that formula instead of the Julia Fractal,
+ * compiled into a kernel of its own, in the Julia plane of the seed or in the
+ * plane of all seeds.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name HeadlessRenderer.java
+ */
+public class HeadlessRenderer {
+
+	private static final int STRIP_PIXELS = 1 << 20;
+
+	private static final String USAGE = "Usage: HeadlessRenderer [options] <output.png>\n"
+			+ "  --seed=RE,IM        Seed of the Julia Fractal (default 0.285,0.01)\n"
+			+ "  --center=RE,IM      Center of the viewport (default 0,0)\n"
+			+ "  --scale=S           Half the width of the viewport (default 1)\n"
+			+ "  --rotation=R        Rotation of the viewport in radians (default 0)\n"
+			+ "  --size=WxH          Size of the image in pixels (default 800x600)\n"
+			+ "  --iterations=N      Maximum number of iterations (default 100)\n"
+			+ "  --threads=N         Number of render threads (default all processors)\n"
+			+ "  --strip=ROWS        Rows per strip (default about a million pixels)\n"
+			+ "  --palette=NAME      gray or fire, spread over the iterations (default gray)\n"
+			+ "  --checkpoint=FILE   Render into FILE and FILE.journal to resume a stopped render\n"
+			+ "  --workers=H:P,...   Render on TileWorker processes at these addresses\n"
+			+ "  --formula=EXPR      Render z = EXPR, such as z^3 + c, burningship or tricorn\n"
+			+ "  --plane=NAME        julia or mandelbrot, the plane the formula is shown in (default julia)";
+
+	private double realSeed = 0.285;
+	private double imaginarySeed = 0.01;
+	private double centerRe = 0;
+	private double centerIm = 0;
+	private double scale = 1;
+	private double rotation = 0;
+	private int width = 800;
+	private int height = 600;
+	private int maxIterations = 100;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int stripRows = 0;
+	private Palette palette = Palette.GRAY;
+	private File checkpoint;
+	private List<InetSocketAddress> workers;
+	private Formula formula;
+	private String plane;
+	private File output;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		HeadlessRenderer renderer = new HeadlessRenderer();
+
+		try {
+			renderer.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+
+		try {
+			renderer.render();
+		} catch (IOException | ExecutionException e) {
+			System.err.println("Rendering failed: " + e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads the options and the output file from the command line.
+	 * 
+	 * @param args - The command line arguments.
+	 * @throws IllegalArgumentException if an argument is not valid.
+	 */
+	private void parse(String[] args) {
+		output = CommandLine.parse(args, "output file", this::option);
+
+		if (width < 1 || height < 1 || maxIterations < 1 || threads < 1 || stripRows < 0 || !(scale > 0)) {
+			throw new IllegalArgumentException("Size, iterations, threads, strip and scale must be positive.");
+		}
+
+		if (checkpoint != null && workers != null) {
+			throw new IllegalArgumentException("A checkpoint can not be used with workers.");
+		}
+
+		if (formula != null && workers != null) {
+			throw new IllegalArgumentException("A formula can not be rendered on workers.");
+		}
+
+		if (plane != null && formula == null) {
+			throw new IllegalArgumentException("The plane can only be chosen for a formula.");
+		}
+
+		if (stripRows == 0) {
+			stripRows = Math.max(1, STRIP_PIXELS / width);
+		}
+	}
+
+	/**
+	 * Reads an option from the command line.
+	 * 
+	 * @param name - Name of the option.
+	 * @param value - Value of the option.
+	 * @return False if there is no option of that name.
+	 * @throws IllegalArgumentException if the value is not valid.
+	 */
+	private boolean option(String name, String value) {
+		switch (name) {
+		case "seed":
+			realSeed = Double.parseDouble(CommandLine.first(value, ","));
+			imaginarySeed = Double.parseDouble(CommandLine.second(value, ","));
+			break;
+		case "center":
+			centerRe = Double.parseDouble(CommandLine.first(value, ","));
+			centerIm = Double.parseDouble(CommandLine.second(value, ","));
+			break;
+		case "scale":
+			scale = Double.parseDouble(value);
+			break;
+		case "rotation":
+			rotation = Double.parseDouble(value);
+			break;
+		case "size":
+			width = Integer.parseInt(CommandLine.first(value, "x"));
+			height = Integer.parseInt(CommandLine.second(value, "x"));
+			break;
+		case "iterations":
+			maxIterations = Integer.parseInt(value);
+			break;
+		case "threads":
+			threads = Integer.parseInt(value);
+			break;
+		case "strip":
+			stripRows = Integer.parseInt(value);
+			break;
+		case "palette":
+			palette = Palette.named(value);
+			break;
+		case "checkpoint":
+			checkpoint = new File(value);
+			break;
+		case "workers":
+			workers = new ArrayList<InetSocketAddress>();
+			for (String address : value.split(",")) {
+				workers.add(new InetSocketAddress(CommandLine.first(address, ":"),
+						Integer.parseInt(CommandLine.second(address, ":"))));
+			}
+			break;
+		case "formula":
+			formula = Formula.named(value);
+			break;
+		case "plane":
+			if (!value.equals("julia") && !value.equals("mandelbrot")) {
+				throw new IllegalArgumentException("Unknown plane: " + value);
+			}
+			plane = value;
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Renders the image and reports how fast it was rendered.
+	 * 
+	 * @throws IOException if the image could not be written.
+	 * @throws ExecutionException if a strip could not be rendered.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private void render() throws IOException, ExecutionException, InterruptedException {
+		JuliaFractal fractal = new JuliaFractal();
+		Viewport viewport = new Viewport(centerRe, centerIm, scale, rotation);
+		Colorizer colorizer = new Colorizer(palette.resize(maxIterations + 1), false);
+		int strips = (height + stripRows - 1) / stripRows;
+
+		// Every strip is rendered on a single thread, the strips in parallel.
+		fractal.setParallelism(1);
+		fractal.setMaxIterations(maxIterations);
+
+		StripGenerator generator;
+		String name;
+
+		if (formula == null) {
+			generator = (startY, endY, counts) -> fractal.generateStrip(width, height, startY, endY, realSeed,
+					imaginarySeed, viewport, counts);
+			name = fractal.toString();
+		} else {
+			FormulaFractal formulaFractal = new FormulaFractal(formula);
+
+			formulaFractal.setParallelism(1);
+			formulaFractal.setMaxIterations(maxIterations);
+			formulaFractal.setJulia(!"mandelbrot".equals(plane));
+
+			if (!KernelCompiler.isCompiled(formulaFractal.getKernel())) {
+				System.out.println("Could not compile the formula, interpreting " + formula);
+			}
+
+			generator = (startY, endY, counts) -> formulaFractal.generateStrip(width, height, startY, endY,
+					realSeed, imaginarySeed, viewport, counts);
+			name = formulaFractal + " plane=" + (plane != null ? plane : "julia");
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayDeque<Future<int[]>> pending = new ArrayDeque<Future<int[]>>();
+		long start = System.nanoTime();
+		int next = 0;
+		MappedIterationBuffer buffer = null;
+		int resumed = 0;
+
+		if (checkpoint != null) {
+			// Every strip is forced to the disk once it is rendered, so the
+			// strips are mapped in regions of their own unless they are small.
+			int regionRows = stripRows * (int) Math.max(1, STRIP_PIXELS / ((long) stripRows * width));
+
+			buffer = new MappedIterationBuffer(checkpoint, width, height, regionRows);
+			resumed = renderCheckpoint(generator, name, buffer, pool);
+		}
+
+		try (PngStreamWriter png = new PngStreamWriter(new BufferedOutputStream(new FileOutputStream(output),
+				1 << 16), width, height)) {
+			if (workers != null && checkpoint == null) {
+				TileCoordinator coordinator = new TileCoordinator(workers);
+
+				// The workers complete the strips in order and each is written
+				// as soon as it is complete.
+				coordinator.render(width, height, stripRows, realSeed, imaginarySeed, viewport, maxIterations,
+						(startY, counts) -> png.writeRows(colorizer.colorize(counts, maxIterations, counts, null),
+								counts.length / width));
+				System.out.println(String.format(Locale.ROOT,
+						"Rendered %d tiles on %d workers in %.2f s, %d retried", coordinator.getTiles(),
+						workers.size(), (System.nanoTime() - start) / 1e9, coordinator.getRetries()));
+			} else {
+				// Keep twice as many strips in flight as there are threads so no
+				// thread waits for the file.
+				for (int written = 0; written < strips; written++) {
+					while (next < strips && pending.size() < 2 * threads) {
+						int startY = next++ * stripRows;
+						int endY = Math.min(height, startY + stripRows);
+
+						MappedIterationBuffer counts = buffer;
+
+						pending.add(pool.submit(() -> {
+							int[] pixels = new int[width * (endY - startY)];
+
+							if (counts != null) {
+								counts.readRows(startY, pixels, endY - startY);
+							} else {
+								generator.generate(startY, endY, pixels);
+							}
+							return colorizer.colorize(pixels, maxIterations, pixels, null);
+						}));
+					}
+
+					int[] pixels = pending.poll().get();
+					png.writeRows(pixels, pixels.length / width);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+
+			if (buffer != null) {
+				buffer.close();
+			}
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double megapixels = (double) width * height / 1e6;
+
+		System.out.println(String.format(Locale.ROOT,
+				"Rendered %dx%d (%.1f Mpixels) in %.2f s, %.2f Mpixels/s on %d threads, wrote %.1f MB to %s", width,
+				height, megapixels, seconds, megapixels / seconds, threads, output.length() / 1e6, output));
+
+		if (resumed > 0) {
+			System.out.println("Resumed " + resumed + " of " + strips + " strips from " + checkpoint);
+		}
+	}
+
+	/**
+	 * Renders every strip that the journal of the checkpoint does not list as
+	 * complete into the memory mapped checkpoint file. A strip is only listed
+	 * once its counts are written through to the disk.
+	 * 
+	 * @param generator - Generates the strips of the fractal.
+	 * @param name - Name of the fractal, recorded in the journal.
+	 * @param buffer - The memory mapped iteration counts.
+	 * @param pool - Threads to render the strips on.
+	 * @return Number of strips that were already complete.
+	 * @throws IOException if the journal could not be opened.
+	 * @throws ExecutionException if a strip could not be rendered.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private int renderCheckpoint(StripGenerator generator, String name, MappedIterationBuffer buffer,
+			ExecutorService pool) throws IOException, ExecutionException, InterruptedException {
+		String description = String.format(Locale.ROOT,
+				"%s seed=%s,%s center=%s,%s scale=%s rotation=%s size=%dx%d iterations=%d strip=%d", name,
+				realSeed, imaginarySeed, centerRe, centerIm, scale, rotation, width, height, maxIterations, stripRows);
+		int strips = (height + stripRows - 1) / stripRows;
+
+		try (RenderJournal journal = new RenderJournal(new File(checkpoint.getPath() + ".journal"), description)) {
+			int resumed = journal.getCompleted();
+			List<Future<?>> rendered = new ArrayList<Future<?>>();
+
+			for (int strip = 0; strip < strips; strip++) {
+				if (journal.isComplete(strip)) {
+					continue;
+				}
+
+				int index = strip;
+				int startY = strip * stripRows;
+				int endY = Math.min(height, startY + stripRows);
+
+				rendered.add(pool.submit(() -> {
+					int[] counts = new int[width * (endY - startY)];
+
+					generator.generate(startY, endY, counts);
+					buffer.writeRows(startY, counts, endY - startY);
+					buffer.force(startY, endY - startY);
+					journal.complete(index);
+					return null;
+				}));
+			}
+
+			for (Future<?> strip : rendered) {
+				strip.get();
+			}
+			return resumed;
+		}
+	}
+
+	/**
+	 * Generates the iteration counts of a strip of rows of the image.
+	 */
+	private interface StripGenerator {
+
+		/**
+		 * Generates the iteration counts of the rows from startY (inclusive)
+		 * to endY (exclusive).
+		 * 
+		 * @param startY - First row of the strip.
+		 * @param endY - Row after the last row of the strip.
+		 * @param counts - Receives the iteration counts of the strip.
+		 */
+		void generate(int startY, int endY, int[] counts);
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.animation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SeedPath moves the seed of a Julia Fractal through a list of keyframes over
+ * time. Between two keyframes the seed either moves in a straight line or
+ * follows a smooth Catmull-Rom spline through every keyframe, which keeps the
+ * motion from changing direction abruptly at the keyframes.
+ * 
+ * More information is available at:
+ * https://en.wikipedia.org/wiki/Cubic_Hermite_spline#Catmull%E2%80%93Rom_spline
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name SeedPath.java
+ */
+public final class SeedPath {
+
+	/**
+	 * How the seed moves between two keyframes.
+	 */
+	public enum Interpolation {
+		LINEAR, SMOOTH
+	}
+
+	private final List<Keyframe> keyframes;
+	private final Interpolation interpolation;
+
+	/**
+	 * Constructs a new SeedPath through the specified keyframes.
+	 * 
+	 * @param keyframes - The keyframes, in any order.
+	 * @param interpolation - How the seed moves between keyframes.
+	 */
+	public SeedPath(List<Keyframe> keyframes, Interpolation interpolation) {
+		if (keyframes.isEmpty()) {
+			throw new IllegalArgumentException("A seed path needs at least one keyframe.");
+		}
+
+		List<Keyframe> sorted = new ArrayList<Keyframe>(keyframes);
+		sorted.sort((a, b) -> Double.compare(a.time, b.time));
+
+		this.keyframes = Collections.unmodifiableList(sorted);
+		this.interpolation = interpolation;
+	}
+
+	/**
+	 * Returns the time of the first keyframe.
+	 * 
+	 * @return Time the path starts at.
+	 */
+	public double getStartTime() {
+		return keyframes.get(0).time;
+	}
+
+	/**
+	 * Returns the time of the last keyframe.
+	 * 
+	 * @return Time the path ends at.
+	 */
+	public double getEndTime() {
+		return keyframes.get(keyframes.size() - 1).time;
+	}
+
+	/**
+	 * Returns the real part of the seed at the specified time. Times before
+	 * the first or after the last keyframe keep the seed of that keyframe.
+	 * 
+	 * @param time - Time along the path.
+	 * @return The seed number for the real number.
+	 */
+	public double getRealSeed(double time) {
+		return interpolate(time, true);
+	}
+
+	/**
+	 * Returns the imaginary part of the seed at the specified time. Times
+	 * before the first or after the last keyframe keep the seed of that
+	 * keyframe.
+	 * 
+	 * @param time - Time along the path.
+	 * @return The seed number for the imaginary number.
+	 */
+	public double getImaginarySeed(double time) {
+		return interpolate(time, false);
+	}
+
+	/**
+	 * Interpolates one part of the seed between the keyframes around a time.
+	 * 
+	 * @param time - Time along the path.
+	 * @param real - True for the real part, false for the imaginary part.
+	 * @return The interpolated part of the seed.
+	 */
+	private double interpolate(double time, boolean real) {
+		int last = keyframes.size() - 1;
+
+		if (time <= getStartTime()) {
+			return keyframes.get(0).get(real);
+		}
+
+		if (time >= getEndTime()) {
+			return keyframes.get(last).get(real);
+		}
+
+		int next = 1;
+		while (keyframes.get(next).time < time) {
+			next++;
+		}
+
+		Keyframe from = keyframes.get(next - 1);
+		Keyframe to = keyframes.get(next);
+		double t = to.time == from.time ? 1 : (time - from.time) / (to.time - from.time);
+
+		if (interpolation == Interpolation.LINEAR) {
+			return from.get(real) + (to.get(real) - from.get(real)) * t;
+		}
+
+		// The keyframes at the ends are repeated to give the spline its
+		// tangents there.
+		double p0 = keyframes.get(Math.max(next - 2, 0)).get(real);
+		double p1 = from.get(real);
+		double p2 = to.get(real);
+		double p3 = keyframes.get(Math.min(next + 1, last)).get(real);
+
+		return 0.5 * (2 * p1 + (p2 - p0) * t + (2 * p0 - 5 * p1 + 4 * p2 - p3) * t * t
+				+ (3 * p1 - p0 - 3 * p2 + p3) * t * t * t);
+	}
+
+	/**
+	 * A seed that the path passes through at a given time.
+	 */
+	public static final class Keyframe {
+
+		private final double time;
+		private final double realSeed;
+		private final double imaginarySeed;
+
+		/**
+		 * Constructs a new Keyframe.
+		 * 
+		 * @param time - Time of the keyframe.
+		 * @param realSeed - The seed number for the real number.
+		 * @param imaginarySeed - The seed number for the imaginary number.
+		 */
+		public Keyframe(double time, double realSeed, double imaginarySeed) {
+			this.time = time;
+			this.realSeed = realSeed;
+			this.imaginarySeed = imaginarySeed;
+		}
+
+		private double get(boolean real) {
+			return real ? realSeed : imaginarySeed;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.animation;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.Viewport;
+import me.oskarmendel.render.Colorizer;
+import me.oskarmendel.render.Palette;
+import me.oskarmendel.render.PngStreamWriter;
+
+/**
+ * SeedSweepJob renders an animation of a Julia Fractal whose seed follows a
+ * SeedPath, as a numbered sequence of PNG images. Several frames are rendered
+ * at the same time, and the rows of every frame are split between the threads
+ * of the fractal as well, so the job keeps many cores busy even when there are
+ * fewer frames in flight than cores.
+ * 
+ * Every frame is written to a temporary file and renamed to its numbered name
+ * in order, so the sequence on disk never has gaps. The temporary files of a
+ * job that fails are deleted. Only the frames being
+ * rendered hold their pixels, which bounds the memory the job uses, and at
+ * most twice as many frames are queued so no thread waits for a slow frame
+ * before it.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name SeedSweepJob.java
+ */
+public class SeedSweepJob {
+
+	private final SeedPath path;
+	private final int frames;
+	private final int width;
+	private final int height;
+	private final Viewport viewport;
+	private final int maxIterations;
+	private final Palette palette;
+
+	/**
+	 * Constructs a new SeedSweepJob. The frames are spread evenly over the
+	 * time from the first to the last keyframe of the path.
+	 * 
+	 * @param path - Path of the seed.
+	 * @param frames - Number of frames to render.
+	 * @param width - Width of every frame.
+	 * @param height - Height of every frame.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param palette - Palette spread over the iterations of every frame.
+	 */
+	public SeedSweepJob(SeedPath path, int frames, int width, int height, Viewport viewport, int maxIterations,
+			Palette palette) {
+		if (frames < 1 || width < 1 || height < 1 || maxIterations < 1) {
+			throw new IllegalArgumentException("Frames, size and iterations must be positive.");
+		}
+
+		this.path = path;
+		this.frames = frames;
+		this.width = width;
+		this.height = height;
+		this.viewport = viewport;
+		this.maxIterations = maxIterations;
+		this.palette = palette;
+	}
+
+	/**
+	 * Returns the time along the path of a frame.
+	 * 
+	 * @param frame - Index of the frame.
+	 * @return Time of the frame.
+	 */
+	public double getTime(int frame) {
+		if (frames == 1) {
+			return path.getStartTime();
+		}
+		return path.getStartTime() + (path.getEndTime() - path.getStartTime()) * frame / (frames - 1);
+	}
+
+	/**
+	 * Renders every frame into the specified directory as frame-00000.png,
+	 * frame-00001.png and so on.
+	 * 
+	 * @param directory - Directory to write the frames to.
+	 * @param framesInFlight - Number of frames rendered at the same time.
+	 * @param threads - Number of threads the rows of the frames are split between.
+	 * @return Time in nanoseconds every frame took to render and encode.
+	 * @throws IOException if a frame could not be written.
+	 * @throws ExecutionException if a frame could not be rendered.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	public long[] render(File directory, int framesInFlight, int threads)
+			throws IOException, ExecutionException, InterruptedException {
+		if (framesInFlight < 1) {
+			throw new IllegalArgumentException("At least one frame must be in flight: " + framesInFlight);
+		}
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+
+		JuliaFractal fractal = new JuliaFractal();
+		Colorizer colorizer = new Colorizer(palette.resize(maxIterations + 1), false);
+		long[] times = new long[frames];
+
+		// Frames share the pool of the fractal, which splits their rows.
+		fractal.setParallelism(threads);
+		fractal.setMaxIterations(maxIterations);
+
+		ExecutorService workers = Executors.newFixedThreadPool(framesInFlight);
+		ArrayDeque<Future<File>> pending = new ArrayDeque<Future<File>>();
+		int next = 0;
+		int written = 0;
+
+		try {
+			for (; written < frames; written++) {
+				while (next < frames && pending.size() < 2 * framesInFlight) {
+					int index = next++;
+
+					pending.add(workers.submit(() -> {
+						long start = System.nanoTime();
+						File file = new File(directory, name(index) + ".tmp");
+						int[] pixels = new int[width * height];
+						double time = getTime(index);
+
+						fractal.generateStrip(width, height, 0, height, path.getRealSeed(time),
+								path.getImaginarySeed(time), viewport, pixels);
+						colorizer.colorize(pixels, maxIterations, pixels, null);
+
+						try (PngStreamWriter png = new PngStreamWriter(
+								new BufferedOutputStream(new FileOutputStream(file), 1 << 16), width, height)) {
+							png.writeRows(pixels, height);
+						}
+
+						times[index] = System.nanoTime() - start;
+						return file;
+					}));
+				}
+
+				File file = pending.poll().get();
+				Files.move(file.toPath(), new File(directory, name(written)).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			workers.shutdownNow();
+
+			// Shuts down the pool of the fractal.
+			fractal.setParallelism(1);
+
+			// Frames still being written finish before their files are deleted.
+			if (written < frames) {
+				workers.awaitTermination(1, TimeUnit.MINUTES);
+
+				for (int frame = written; frame < next; frame++) {
+					new File(directory, name(frame) + ".tmp").delete();
+				}
+			}
+		}
+
+		return times;
+	}
+
+	/**
+	 * Returns the file name of a frame.
+	 * 
+	 * @param frame - Index of the frame.
+	 * @return Name of the frame's image.
+	 */
+	private static String name(int frame) {
+		return String.format("frame-%05d.png", frame);
+	}
+}
@@ -0,0 +1,469 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.Viewport;
+
+/**
+ * TileCoordinator renders a Julia Fractal frame on a set of TileWorkers. The
+ * frame is rendered in strips of rows, which are handed on in order so frames
+ * larger than memory can be written as they complete. Every strip is cut into
+ * tiles that every worker takes from a shared queue as soon as it is done with
+ * its last one, so faster workers render more tiles.
+ * 
+ * Tiles are sized by their cost rather than their area. A preview of the strip
+ * at an eighth of its resolution estimates the iterations every region takes,
+ * and regions are split in half along their longer side until each is below
+ * its share of the total cost. Interior regions that take the maximum number
+ * of iterations get small tiles and never hold up the end of the render.
+ * 
+ * A tile whose worker fails or stops answering goes back into the queue,
+ * until it has failed too many times. The coordinator then connects to the
+ * worker again after a short pause, which doubles with every connection that
+ * fails in a row, and only gives up on a worker that cannot be reached a few
+ * times in a row.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileCoordinator.java
+ */
+public class TileCoordinator {
+
+	private static final int PREVIEW_STEP = 8;
+	private static final int TILES_PER_WORKER = 16;
+	private static final int MIN_TILE_SIZE = 16;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final int STRIPS_AHEAD = 4;
+	private static final int CONNECT_TIMEOUT = 5000;
+	private static final long RECONNECT_DELAY = 200;
+	private static final Logger LOGGER = Logger.getLogger(TileCoordinator.class.getName());
+
+	private final List<InetSocketAddress> workers;
+	private final AtomicInteger retries = new AtomicInteger();
+	private int timeout = 60000;
+	private int tiles;
+
+	/**
+	 * Constructs a new TileCoordinator for the specified workers.
+	 * 
+	 * @param workers - Addresses of the workers.
+	 */
+	public TileCoordinator(List<InetSocketAddress> workers) {
+		if (workers.isEmpty()) {
+			throw new IllegalArgumentException("A coordinator needs at least one worker.");
+		}
+		this.workers = new ArrayList<InetSocketAddress>(workers);
+	}
+
+	/**
+	 * Sets how long a worker may take to render a tile before the tile is
+	 * given to another worker.
+	 * 
+	 * @param timeout - Timeout in milliseconds.
+	 */
+	public void setTimeout(int timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Returns the number of tiles the last frame was cut into.
+	 * 
+	 * @return Number of tiles.
+	 */
+	public int getTiles() {
+		return tiles;
+	}
+
+	/**
+	 * Returns the number of tiles that had to be rendered again because their
+	 * worker failed.
+	 * 
+	 * @return Number of retried tiles.
+	 */
+	public int getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * Renders the iteration counts of a frame on the workers one strip of rows
+	 * at a time. The tiles of the next few strips are queued while the first
+	 * is rendered, and every strip is handed to the listener in order as soon
+	 * as it is complete, so only those strips are held in memory.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param stripRows - Rows per strip.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param listener - Receives the strips of the frame in order.
+	 * @throws IOException if a tile failed too often, every worker failed or
+	 *             the listener failed.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	public void render(int width, int height, int stripRows, double realSeed, double imaginarySeed,
+			Viewport viewport, int maxIterations, StripListener listener) throws IOException, InterruptedException {
+		Frame frame = new Frame();
+		ArrayDeque<Strip> pending = new ArrayDeque<Strip>();
+		int strips = (height + stripRows - 1) / stripRows;
+		int planned = 0;
+
+		tiles = 0;
+		retries.set(0);
+
+		ExecutorService connections = Executors.newFixedThreadPool(workers.size());
+		List<Future<?>> served = new ArrayList<Future<?>>();
+
+		try {
+			for (InetSocketAddress worker : workers) {
+				served.add(connections.submit(() -> {
+					serve(worker, frame);
+					return null;
+				}));
+			}
+
+			for (int written = 0; written < strips; written++) {
+				while (planned < strips && planned < written + STRIPS_AHEAD) {
+					int startY = planned++ * stripRows;
+					int endY = Math.min(height, startY + stripRows);
+					List<TileRequest> requests = plan(width, height, startY, endY, realSeed, imaginarySeed, viewport,
+							maxIterations, tiles);
+					Strip strip = new Strip(startY, new int[width * (endY - startY)], requests.size());
+
+					for (TileRequest request : requests) {
+						frame.queue.add(new Tile(request, strip));
+					}
+					tiles += requests.size();
+					pending.add(strip);
+				}
+
+				Strip strip = pending.poll();
+				while (!strip.remaining.await(100, TimeUnit.MILLISECONDS)) {
+					checkWorkers(served);
+				}
+				listener.accept(strip.startY, strip.counts);
+			}
+		} finally {
+			frame.finished = true;
+			connections.shutdownNow();
+		}
+	}
+
+	/**
+	 * Throws the failure of a worker that gave up on the frame, or a failure
+	 * once every worker stopped rendering.
+	 * 
+	 * @param served - The connections to the workers.
+	 * @throws IOException if a worker failed or every worker stopped.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private static void checkWorkers(List<Future<?>> served) throws IOException, InterruptedException {
+		boolean serving = false;
+
+		for (Future<?> connection : served) {
+			if (!connection.isDone()) {
+				serving = true;
+				continue;
+			}
+
+			try {
+				connection.get();
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause().getMessage(), e.getCause());
+			}
+		}
+
+		if (!serving) {
+			throw new IOException("Every worker failed.");
+		}
+	}
+
+	/**
+	 * Renders tiles from the queue on one worker until the frame is finished,
+	 * connecting to the worker again whenever its connection fails. The
+	 * worker is given up on once it could not be reached MAX_ATTEMPTS times in
+	 * a row.
+	 * 
+	 * @param worker - Address of the worker.
+	 * @param frame - The frame to render.
+	 * @throws IOException if a tile failed too many times.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private void serve(InetSocketAddress worker, Frame frame) throws IOException, InterruptedException {
+		int failures = 0;
+
+		while (!frame.finished) {
+			try (Socket socket = new Socket()) {
+				socket.connect(worker, CONNECT_TIMEOUT);
+				socket.setSoTimeout(timeout);
+				socket.setTcpNoDelay(true);
+
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+				TileRequest.handshake(in, out);
+				failures = 0;
+				renderTiles(worker, in, out, frame);
+			} catch (IOException e) {
+				if (frame.failed) {
+					throw e;
+				}
+
+				if (frame.finished) {
+					return;
+				}
+
+				if (++failures >= MAX_ATTEMPTS) {
+					LOGGER.log(Level.WARNING, "Giving up on worker " + worker + " after " + failures
+							+ " failed connections", e);
+					return;
+				}
+
+				LOGGER.log(Level.INFO, "Connecting to worker " + worker + " again: " + e);
+				Thread.sleep(RECONNECT_DELAY << (failures - 1));
+			}
+		}
+	}
+
+	/**
+	 * Renders tiles from the queue over one connection to a worker until the
+	 * frame is finished. A tile that fails goes back into the queue.
+	 * 
+	 * @param worker - Address of the worker.
+	 * @param in - Stream of the counts from the worker.
+	 * @param out - Stream of the requests to the worker.
+	 * @param frame - The frame to render.
+	 * @throws IOException if the connection failed or a tile failed too many
+	 *             times, which fails the frame.
+	 * @throws InterruptedException if rendering was interrupted.
+	 */
+	private void renderTiles(InetSocketAddress worker, DataInputStream in, DataOutputStream out, Frame frame)
+			throws IOException, InterruptedException {
+		while (!frame.finished) {
+			Tile tile = frame.queue.poll(100, TimeUnit.MILLISECONDS);
+
+			if (tile == null) {
+				continue;
+			}
+
+			TileRequest request = tile.request;
+
+			if (++tile.attempts > MAX_ATTEMPTS) {
+				frame.failed = true;
+				throw new IOException("Tile " + request.id + " failed " + MAX_ATTEMPTS + " times.");
+			}
+
+			int[] counts = new int[request.getPixels()];
+
+			try {
+				request.write(out);
+				out.flush();
+				TileRequest.readCounts(in, request.id, counts);
+			} catch (IOException e) {
+				// Hand the tile back and connect again.
+				retries.incrementAndGet();
+				frame.queue.add(tile);
+				LOGGER.log(Level.INFO, "Worker " + worker + " failed on tile " + request.id, e);
+				throw e;
+			}
+
+			int tileWidth = request.x1 - request.x0;
+			for (int y = request.y0; y < request.y1; y++) {
+				System.arraycopy(counts, (y - request.y0) * tileWidth, tile.strip.counts,
+						(y - tile.strip.startY) * request.width + request.x0, tileWidth);
+			}
+			tile.strip.remaining.countDown();
+		}
+	}
+
+	/**
+	 * Cuts a strip of a frame into tiles of about the same cost, none larger
+	 * than a worker accepts.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param startY - First row of the strip.
+	 * @param endY - Row after the last row of the strip.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param firstId - Id of the first tile of the strip.
+	 * @return The tiles of the strip.
+	 */
+	private List<TileRequest> plan(int width, int height, int startY, int endY, double realSeed,
+			double imaginarySeed, Viewport viewport, int maxIterations, int firstId) {
+		int previewWidth = (width + PREVIEW_STEP - 1) / PREVIEW_STEP;
+		int previewHeight = (height + PREVIEW_STEP - 1) / PREVIEW_STEP;
+		int previewStartY = startY / PREVIEW_STEP;
+		int previewRows = (endY + PREVIEW_STEP - 1) / PREVIEW_STEP - previewStartY;
+		int[] preview = new int[previewWidth * previewRows];
+		JuliaFractal fractal = new JuliaFractal();
+
+		fractal.setMaxIterations(maxIterations);
+		fractal.setParallelism(1);
+		fractal.generateStrip(previewWidth, previewHeight, previewStartY, previewStartY + previewRows, realSeed,
+				imaginarySeed, viewport, preview);
+
+		// Summed costs of the preview, where cost[(y * (w + 1)) + x] covers
+		// every preview pixel above and to the left of x, y. Every pixel costs
+		// at least one iteration.
+		long[] cost = new long[(previewWidth + 1) * (previewRows + 1)];
+		for (int y = 0; y < previewRows; y++) {
+			for (int x = 0; x < previewWidth; x++) {
+				cost[(y + 1) * (previewWidth + 1) + x + 1] = preview[y * previewWidth + x] + 1
+						+ cost[y * (previewWidth + 1) + x + 1] + cost[(y + 1) * (previewWidth + 1) + x]
+						- cost[y * (previewWidth + 1) + x];
+			}
+		}
+
+		long budget = Math.max(1, cost[cost.length - 1] / (workers.size() * TILES_PER_WORKER));
+		List<TileRequest> planned = new ArrayList<TileRequest>();
+		List<int[]> regions = new ArrayList<int[]>();
+		regions.add(new int[] { 0, startY, width, endY });
+
+		while (!regions.isEmpty()) {
+			int[] region = regions.remove(regions.size() - 1);
+			int x0 = region[0], y0 = region[1], x1 = region[2], y1 = region[3];
+			boolean wide = x1 - x0 >= y1 - y0;
+			int size = wide ? x1 - x0 : y1 - y0;
+
+			if (size < 2 * MIN_TILE_SIZE || cost(cost, previewWidth, previewStartY, region) <= budget
+					&& (long) (x1 - x0) * (y1 - y0) <= TileRequest.MAX_PIXELS) {
+				planned.add(new TileRequest(firstId + planned.size(), width, height, x0, y0, x1, y1, realSeed,
+						imaginarySeed, viewport, maxIterations));
+			} else if (wide) {
+				int middle = (x0 + x1) >>> 1;
+				regions.add(new int[] { x0, y0, middle, y1 });
+				regions.add(new int[] { middle, y0, x1, y1 });
+			} else {
+				int middle = (y0 + y1) >>> 1;
+				regions.add(new int[] { x0, y0, x1, middle });
+				regions.add(new int[] { x0, middle, x1, y1 });
+			}
+		}
+
+		return planned;
+	}
+
+	/**
+	 * Estimates the cost of a region of the frame from the summed preview
+	 * costs, counting every preview pixel whose block overlaps the region.
+	 * 
+	 * @param cost - Summed costs of the preview.
+	 * @param previewWidth - Width of the preview.
+	 * @param previewStartY - First row of the frame preview the summed costs cover.
+	 * @param region - Rectangle x0, y0, x1, y1 of the frame.
+	 * @return The estimated cost of the region.
+	 */
+	private static long cost(long[] cost, int previewWidth, int previewStartY, int[] region) {
+		int x0 = region[0] / PREVIEW_STEP;
+		int y0 = region[1] / PREVIEW_STEP - previewStartY;
+		int x1 = (region[2] + PREVIEW_STEP - 1) / PREVIEW_STEP;
+		int y1 = (region[3] + PREVIEW_STEP - 1) / PREVIEW_STEP - previewStartY;
+		int stride = previewWidth + 1;
+
+		return cost[y1 * stride + x1] - cost[y0 * stride + x1] - cost[y1 * stride + x0] + cost[y0 * stride + x0];
+	}
+
+	/**
+	 * Receives the iteration counts of the strips of a frame in order.
+	 */
+	public interface StripListener {
+
+		/**
+		 * Receives the iteration counts of a strip.
+		 * 
+		 * @param startY - First row of the strip.
+		 * @param counts - Iteration counts of the strip, one row after the other.
+		 * @throws IOException if the strip could not be used.
+		 */
+		void accept(int startY, int[] counts) throws IOException;
+	}
+
+	/**
+	 * The tiles of a frame waiting for a worker.
+	 */
+	private static final class Frame {
+
+		private final BlockingQueue<Tile> queue = new LinkedBlockingQueue<Tile>();
+		private volatile boolean finished;
+		private volatile boolean failed;
+	}
+
+	/**
+	 * A strip of a frame and the number of its tiles not rendered yet.
+	 */
+	private static final class Strip {
+
+		private final int startY;
+		private final int[] counts;
+		private final CountDownLatch remaining;
+
+		Strip(int startY, int[] counts, int tiles) {
+			this.startY = startY;
+			this.counts = counts;
+			this.remaining = new CountDownLatch(tiles);
+		}
+	}
+
+	/**
+	 * A tile of a strip and the number of times it was given to a worker.
+	 */
+	private static final class Tile {
+
+		private final TileRequest request;
+		private final Strip strip;
+		private int attempts;
+
+		Tile(TileRequest request, Strip strip) {
+			this.request = request;
+			this.strip = strip;
+		}
+	}
+}
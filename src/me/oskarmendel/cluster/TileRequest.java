@@ -0,0 +1,218 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import me.oskarmendel.fractals.Viewport;
+
+/**
+ * TileRequest asks a TileWorker for the iteration counts of one tile of a
+ * Julia Fractal frame. Requests and the counts sent back are written with the
+ * big endian encoding of DataOutputStream:
+ * 
+ * request: id, width, height, x0, y0, x1, y1 (int), realSeed, imaginarySeed,
+ * centerRe, centerIm, scale, rotation (double), maxIterations (int)
+ * 
+ * response: id, count (int) followed by count iteration counts (int)
+ * 
+ * A connection starts with both sides sending MAGIC and VERSION.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileRequest.java
+ */
+final class TileRequest {
+
+	static final int MAGIC = 0x4A554C49;
+	static final int VERSION = 1;
+
+	/**
+	 * Largest number of pixels a tile may have, which bounds the memory a
+	 * worker needs for a request.
+	 */
+	static final int MAX_PIXELS = 1 << 24;
+
+	final int id;
+	final int width;
+	final int height;
+	final int x0;
+	final int y0;
+	final int x1;
+	final int y1;
+	final double realSeed;
+	final double imaginarySeed;
+	final Viewport viewport;
+	final int maxIterations;
+
+	/**
+	 * Constructs a new TileRequest for the rectangle from x0, y0 (inclusive)
+	 * to x1, y1 (exclusive) of a frame.
+	 * 
+	 * @param id - Identifies the tile within the render.
+	 * @param width - Width of the frame.
+	 * @param height - Height of the frame.
+	 * @param x0 - Left edge of the tile.
+	 * @param y0 - Top edge of the tile.
+	 * @param x1 - Right edge of the tile.
+	 * @param y1 - Bottom edge of the tile.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane of the frame.
+	 * @param maxIterations - Maximum number of iterations.
+	 */
+	TileRequest(int id, int width, int height, int x0, int y0, int x1, int y1, double realSeed,
+			double imaginarySeed, Viewport viewport, int maxIterations) {
+		this.id = id;
+		this.width = width;
+		this.height = height;
+		this.x0 = x0;
+		this.y0 = y0;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.realSeed = realSeed;
+		this.imaginarySeed = imaginarySeed;
+		this.viewport = viewport;
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Returns the number of pixels in the tile.
+	 * 
+	 * @return Number of pixels.
+	 */
+	int getPixels() {
+		return (x1 - x0) * (y1 - y0);
+	}
+
+	/**
+	 * Writes the request.
+	 * 
+	 * @param out - Stream to write to.
+	 * @throws IOException if the request could not be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(id);
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(x0);
+		out.writeInt(y0);
+		out.writeInt(x1);
+		out.writeInt(y1);
+		out.writeDouble(realSeed);
+		out.writeDouble(imaginarySeed);
+		out.writeDouble(viewport.getCenterRe());
+		out.writeDouble(viewport.getCenterIm());
+		out.writeDouble(viewport.getScale());
+		out.writeDouble(viewport.getRotation());
+		out.writeInt(maxIterations);
+	}
+
+	/**
+	 * Reads a request.
+	 * 
+	 * @param in - Stream to read from.
+	 * @return The request.
+	 * @throws IOException if the request could not be read or is not valid.
+	 */
+	static TileRequest read(DataInputStream in) throws IOException {
+		int id = in.readInt();
+		int width = in.readInt();
+		int height = in.readInt();
+		int x0 = in.readInt();
+		int y0 = in.readInt();
+		int x1 = in.readInt();
+		int y1 = in.readInt();
+		double realSeed = in.readDouble();
+		double imaginarySeed = in.readDouble();
+		double centerRe = in.readDouble();
+		double centerIm = in.readDouble();
+		double scale = in.readDouble();
+		double rotation = in.readDouble();
+		int maxIterations = in.readInt();
+
+		if (x0 < 0 || y0 < 0 || x1 > width || y1 > height || x0 >= x1 || y0 >= y1 || maxIterations < 1
+				|| !(scale > 0) || (long) (x1 - x0) * (y1 - y0) > MAX_PIXELS) {
+			throw new IOException("Invalid tile request " + id);
+		}
+
+		return new TileRequest(id, width, height, x0, y0, x1, y1, realSeed, imaginarySeed,
+				new Viewport(centerRe, centerIm, scale, rotation), maxIterations);
+	}
+
+	/**
+	 * Writes the iteration counts of a tile.
+	 * 
+	 * @param out - Stream to write to.
+	 * @param id - Identifies the tile.
+	 * @param iterations - The iteration counts of the tile.
+	 * @throws IOException if the counts could not be written.
+	 */
+	static void writeCounts(DataOutputStream out, int id, int[] iterations) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(4 * iterations.length);
+		bytes.asIntBuffer().put(iterations);
+
+		out.writeInt(id);
+		out.writeInt(iterations.length);
+		out.write(bytes.array());
+	}
+
+	/**
+	 * Reads the iteration counts of a tile.
+	 * 
+	 * @param in - Stream to read from.
+	 * @param id - The tile the counts must belong to.
+	 * @param iterations - Receives the iteration counts of the tile.
+	 * @throws IOException if the counts could not be read or are not for the tile.
+	 */
+	static void readCounts(DataInputStream in, int id, int[] iterations) throws IOException {
+		if (in.readInt() != id || in.readInt() != iterations.length) {
+			throw new IOException("Unexpected response for tile " + id);
+		}
+
+		byte[] bytes = new byte[4 * iterations.length];
+		in.readFully(bytes);
+		ByteBuffer.wrap(bytes).asIntBuffer().get(iterations);
+	}
+
+	/**
+	 * Sends MAGIC and VERSION and checks that the other side sent the same.
+	 * 
+	 * @param in - Stream from the other side.
+	 * @param out - Stream to the other side.
+	 * @throws IOException if the other side does not speak this protocol.
+	 */
+	static void handshake(DataInputStream in, DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.flush();
+
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a tile worker of version " + VERSION);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.render.RenderEvents;
+
+/**
+ * TileWorker renders tiles of Julia Fractal frames for a TileCoordinator over
+ * TCP. Every connection is served on a thread of its own, one tile at a time,
+ * and the rows of every tile are split between the threads of the worker.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileWorker.java
+ */
+public class TileWorker {
+
+	private static final Logger LOGGER = Logger.getLogger(TileWorker.class.getName());
+
+	private final JuliaFractal fractal = new JuliaFractal();
+	private final ServerSocket server;
+
+	/**
+	 * Constructs a new TileWorker listening on the specified port.
+	 * 
+	 * @param port - Port to listen on, or 0 for any free port.
+	 * @param threads - Number of threads to split the rows of tiles between.
+	 * @throws IOException if the port could not be opened.
+	 */
+	public TileWorker(int port, int threads) throws IOException {
+		this.server = new ServerSocket(port);
+		fractal.setParallelism(threads);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7321;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		TileWorker worker = new TileWorker(port, threads);
+
+		System.out.println("Tile worker listening on port " + worker.getPort() + " with " + threads + " threads");
+		worker.serve();
+	}
+
+	/**
+	 * Returns the port the worker listens on.
+	 * 
+	 * @return The port.
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Accepts connections until the worker is closed.
+	 * 
+	 * @throws IOException if the worker stopped accepting connections.
+	 */
+	public void serve() throws IOException {
+		while (!server.isClosed()) {
+			Socket socket = server.accept();
+			Thread connection = new Thread(() -> handle(socket), "TileWorker-" + socket.getRemoteSocketAddress());
+
+			connection.setDaemon(true);
+			connection.start();
+		}
+	}
+
+	/**
+	 * Stops accepting connections.
+	 * 
+	 * @throws IOException if the port could not be closed.
+	 */
+	public void close() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Renders the tiles requested over a connection until it is closed.
+	 * 
+	 * @param socket - The connection to a coordinator.
+	 */
+	private void handle(Socket socket) {
+		try (Socket s = socket) {
+			s.setTcpNoDelay(true);
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 1 << 16));
+
+			TileRequest.handshake(in, out);
+
+			while (true) {
+				TileRequest request;
+
+				try {
+					request = TileRequest.read(in);
+				} catch (EOFException e) {
+					return;
+				}
+
+				int[] iterations = new int[request.getPixels()];
+
+				synchronized (fractal) {
+					Object event = RenderEvents.beginTile();
+
+					fractal.setMaxIterations(request.maxIterations);
+					fractal.generateTile(request.width, request.height, request.x0, request.y0, request.x1,
+							request.y1, request.realSeed, request.imaginarySeed, request.viewport, iterations);
+					RenderEvents.commitTile(event, fractal.toString(), request.x0, request.y0, request.x1,
+							request.y1);
+				}
+
+				TileRequest.writeCounts(out, request.id, iterations);
+				out.flush();
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Connection " + socket.getRemoteSocketAddress() + " failed", e);
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formula is the step z = f(z, c) of an escape time fractal, parsed from an
+ * expression such as z^2 + c. The expression is translated into a short
+ * program of complex operations, each writing its result to a new register,
+ * which {@link KernelCompiler} turns into a kernel class of plain double
+ * arithmetic.
+ * 
+ * Expressions use the variables z and c, the imaginary unit i, decimal
+ * numbers, the operators + - * / and ^ with a whole number exponent, and the
+ * functions conj, abs, sqr, exp, sin and cos. The function abs takes the
+ * absolute value of the real and the imaginary part separately, as the
+ * Burning Ship fractal does.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name Formula.java
+ */
+public final class Formula {
+
+	/**
+	 * The formula of the Julia and Mandelbrot sets.
+	 */
+	public static final Formula QUADRATIC = parse("z^2 + c");
+
+	/**
+	 * The Burning Ship fractal, which folds z into the first quadrant before
+	 * squaring it.
+	 */
+	public static final Formula BURNING_SHIP = parse("abs(z)^2 + c");
+
+	/**
+	 * The Tricorn fractal, which squares the complex conjugate of z.
+	 */
+	public static final Formula TRICORN = parse("conj(z)^2 + c");
+
+	static final int Z = 0;
+	static final int C = 1;
+	static final int CONSTANT = 0;
+	static final int NEGATE = 1;
+	static final int ADD = 2;
+	static final int SUBTRACT = 3;
+	static final int MULTIPLY = 4;
+	static final int DIVIDE = 5;
+	static final int SQUARE = 6;
+	static final int CONJUGATE = 7;
+	static final int ABSOLUTE = 8;
+	static final int EXP = 9;
+	static final int SIN = 10;
+	static final int COS = 11;
+
+	private static final int MAX_EXPONENT = 64;
+
+	private final String expression;
+	private final Instruction[] program;
+
+	/**
+	 * Constructs a new Formula of a parsed expression.
+	 * 
+	 * @param expression - The expression the formula was parsed from.
+	 * @param program - The operations computing the next z.
+	 */
+	private Formula(String expression, Instruction[] program) {
+		this.expression = expression;
+		this.program = program;
+	}
+
+	/**
+	 * Parses an expression of z and c into a formula.
+	 * 
+	 * @param expression - The expression, for example z^3 + c.
+	 * @return The parsed formula.
+	 * @throws IllegalArgumentException if the expression is not valid.
+	 */
+	public static Formula parse(String expression) {
+		Parser parser = new Parser(expression);
+		parser.parse();
+
+		return new Formula(expression.trim(), parser.program.toArray(new Instruction[parser.program.size()]));
+	}
+
+	/**
+	 * Returns the formula z^n + c of the Multibrot sets.
+	 * 
+	 * @param n - The exponent, at least 2.
+	 * @return The formula z^n + c.
+	 */
+	public static Formula power(int n) {
+		if (n < 2) {
+			throw new IllegalArgumentException("The exponent must be at least 2: " + n);
+		}
+		return parse("z^" + n + " + c");
+	}
+
+	/**
+	 * Looks up one of the predefined formulas by name, or parses the name as
+	 * an expression if it is none of them.
+	 * 
+	 * @param name - quadratic, burningship, tricorn or an expression.
+	 * @return The formula.
+	 * @throws IllegalArgumentException if the expression is not valid.
+	 */
+	public static Formula named(String name) {
+		switch (name) {
+		case "quadratic":
+			return QUADRATIC;
+		case "burningship":
+			return BURNING_SHIP;
+		case "tricorn":
+			return TRICORN;
+		default:
+			return parse(name);
+		}
+	}
+
+	/**
+	 * Returns the expression the formula was parsed from.
+	 * 
+	 * @return The expression of the formula.
+	 */
+	public String getExpression() {
+		return this.expression;
+	}
+
+	/**
+	 * Returns the operations of the formula. Register 0 holds z and register
+	 * 1 holds c, every instruction writes the register after the previous
+	 * one and the last instruction writes the next z.
+	 * 
+	 * @return The operations of the formula.
+	 */
+	Instruction[] getProgram() {
+		return this.program;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Formula && ((Formula) obj).expression.equals(expression);
+	}
+
+	@Override
+	public int hashCode() {
+		return expression.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	/**
+	 * A single complex operation of a formula on one or two registers, or a
+	 * constant.
+	 */
+	static final class Instruction {
+
+		final int operation;
+		final int first;
+		final int second;
+		final double re;
+		final double im;
+
+		Instruction(int operation, int first, int second, double re, double im) {
+			this.operation = operation;
+			this.first = first;
+			this.second = second;
+			this.re = re;
+			this.im = im;
+		}
+	}
+
+	/**
+	 * Recursive descent parser writing the instructions of an expression in
+	 * the order they are evaluated.
+	 */
+	private static final class Parser {
+
+		private final String expression;
+		private final List<Instruction> program = new ArrayList<Instruction>();
+		private int position;
+
+		Parser(String expression) {
+			this.expression = expression;
+		}
+
+		/**
+		 * Parses the whole expression. An expression that is only z or c is
+		 * copied into a register of its own so every formula ends with an
+		 * instruction.
+		 */
+		void parse() {
+			int result = parseSum();
+
+			skipSpaces();
+			if (position < expression.length()) {
+				throw error("Unexpected '" + expression.charAt(position) + "'");
+			}
+
+			if (result <= C) {
+				emit(ADD, result, emit(CONSTANT, 0, 0, 0, 0), 0, 0);
+			}
+		}
+
+		private int parseSum() {
+			int result = parseProduct();
+
+			while (true) {
+				if (accept('+')) {
+					result = emit(ADD, result, parseProduct(), 0, 0);
+				} else if (accept('-')) {
+					result = emit(SUBTRACT, result, parseProduct(), 0, 0);
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private int parseProduct() {
+			int result = parseUnary();
+
+			while (true) {
+				if (accept('*')) {
+					result = emit(MULTIPLY, result, parseUnary(), 0, 0);
+				} else if (accept('/')) {
+					result = emit(DIVIDE, result, parseUnary(), 0, 0);
+				} else {
+					return result;
+				}
+			}
+		}
+
+		private int parseUnary() {
+			if (accept('-')) {
+				return emit(NEGATE, parseUnary(), 0, 0, 0);
+			}
+			return parsePower();
+		}
+
+		/**
+		 * Parses a power, which is expanded into squares and products by
+		 * squaring and multiplying.
+		 */
+		private int parsePower() {
+			int base = parseAtom();
+
+			if (!accept('^')) {
+				return base;
+			}
+
+			skipSpaces();
+			int start = position;
+			while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+				position++;
+			}
+
+			if (start == position) {
+				throw error("The exponent must be a whole number");
+			}
+
+			int exponent;
+			try {
+				exponent = Integer.parseInt(expression.substring(start, position));
+			} catch (NumberFormatException e) {
+				exponent = Integer.MAX_VALUE;
+			}
+
+			if (exponent > MAX_EXPONENT) {
+				throw error("The exponent must be at most " + MAX_EXPONENT);
+			}
+
+			if (exponent == 0) {
+				return emit(CONSTANT, 0, 0, 1, 0);
+			}
+
+			int result = -1;
+			for (int bit = Integer.highestOneBit(exponent); bit > 0; bit >>= 1) {
+				if (result < 0) {
+					result = base;
+				} else {
+					result = emit(SQUARE, result, 0, 0, 0);
+					if ((exponent & bit) != 0) {
+						result = emit(MULTIPLY, result, base, 0, 0);
+					}
+				}
+			}
+			return result;
+		}
+
+		private int parseAtom() {
+			skipSpaces();
+
+			if (position >= expression.length()) {
+				throw error("Unexpected end of the expression");
+			}
+
+			char next = expression.charAt(position);
+
+			if (accept('(')) {
+				int result = parseSum();
+				expect(')');
+				return result;
+			}
+
+			if (Character.isDigit(next) || next == '.') {
+				return emit(CONSTANT, 0, 0, parseNumber(), 0);
+			}
+
+			if (!Character.isLetter(next)) {
+				throw error("Unexpected '" + next + "'");
+			}
+
+			int start = position;
+			while (position < expression.length() && Character.isLetter(expression.charAt(position))) {
+				position++;
+			}
+			String name = expression.substring(start, position);
+
+			switch (name) {
+			case "z":
+				return Z;
+			case "c":
+				return C;
+			case "i":
+				return emit(CONSTANT, 0, 0, 0, 1);
+			case "conj":
+				return emit(CONJUGATE, parseArgument(name), 0, 0, 0);
+			case "abs":
+				return emit(ABSOLUTE, parseArgument(name), 0, 0, 0);
+			case "sqr":
+				return emit(SQUARE, parseArgument(name), 0, 0, 0);
+			case "exp":
+				return emit(EXP, parseArgument(name), 0, 0, 0);
+			case "sin":
+				return emit(SIN, parseArgument(name), 0, 0, 0);
+			case "cos":
+				return emit(COS, parseArgument(name), 0, 0, 0);
+			default:
+				position = start;
+				throw error("Unknown name '" + name + "'");
+			}
+		}
+
+		private int parseArgument(String function) {
+			if (!accept('(')) {
+				throw error("Expected '(' after " + function);
+			}
+
+			int result = parseSum();
+			expect(')');
+			return result;
+		}
+
+		private double parseNumber() {
+			int start = position;
+
+			while (position < expression.length() && (Character.isDigit(expression.charAt(position))
+					|| expression.charAt(position) == '.')) {
+				position++;
+			}
+
+			if (position < expression.length() && (expression.charAt(position) == 'e'
+					|| expression.charAt(position) == 'E')) {
+				int mantissa = position++;
+
+				if (position < expression.length() && (expression.charAt(position) == '+'
+						|| expression.charAt(position) == '-')) {
+					position++;
+				}
+
+				if (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+					while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+						position++;
+					}
+				} else {
+					position = mantissa;
+				}
+			}
+
+			double value;
+			try {
+				value = Double.parseDouble(expression.substring(start, position));
+			} catch (NumberFormatException e) {
+				position = start;
+				throw error("Not a number");
+			}
+
+			if (Double.isInfinite(value)) {
+				position = start;
+				throw error("The number is too large");
+			}
+			return value;
+		}
+
+		private int emit(int operation, int first, int second, double re, double im) {
+			program.add(new Instruction(operation, first, second, re, im));
+			return program.size() + C;
+		}
+
+		private boolean accept(char expected) {
+			skipSpaces();
+
+			if (position < expression.length() && expression.charAt(position) == expected) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(char expected) {
+			if (!accept(expected)) {
+				throw error("Expected '" + expected + "'");
+			}
+		}
+
+		private void skipSpaces() {
+			while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+				position++;
+			}
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + position + " of " + expression);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.formula;
+
+import me.oskarmendel.formula.Formula.Instruction;
+
+/**
+ * InterpretedKernel runs the program of a formula one instruction at a time.
+ * It is used where no Java compiler is available to compile the formula, and
+ * computes exactly the same iteration counts as a compiled kernel only
+ * slower.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name InterpretedKernel.java
+ */
+final class InterpretedKernel implements Kernel {
+
+	private final Instruction[] program;
+	private final ThreadLocal<double[][]> registers;
+
+	/**
+	 * Constructs a new InterpretedKernel of the specified formula.
+	 * 
+	 * @param formula - The formula to run.
+	 */
+	InterpretedKernel(Formula formula) {
+		this.program = formula.getProgram();
+		this.registers = ThreadLocal.withInitial(() -> new double[2][program.length + 2]);
+	}
+
+	@Override
+	public int iterate(double re, double im, double realSeed, double imaginarySeed, int maxIterations,
+			double squaredThreshold) {
+		double[][] registers = this.registers.get();
+		double[] r = registers[0];
+		double[] i = registers[1];
+		int result = program.length + 1;
+		int n;
+
+		r[Formula.C] = realSeed;
+		i[Formula.C] = imaginarySeed;
+
+		for (n = 0; n < maxIterations && re * re + im * im <= squaredThreshold; n++) {
+			r[Formula.Z] = re;
+			i[Formula.Z] = im;
+
+			for (int k = 0; k < program.length; k++) {
+				execute(program[k], r, i, k + 2);
+			}
+
+			re = r[result];
+			im = i[result];
+		}
+
+		return n;
+	}
+
+	@Override
+	public void iterateRow(int[] iterations, int offset, int startX, int endX, int width, double minRe,
+			double range, double im, double realSeed, double imaginarySeed, boolean julia, int maxIterations,
+			double squaredThreshold) {
+		for (int x = startX; x < endX; x++) {
+			double re = x * range / width + minRe;
+
+			if (julia) {
+				iterations[offset + x] = iterate(re, im, realSeed, imaginarySeed, maxIterations, squaredThreshold);
+			} else {
+				iterations[offset + x] = iterate(re, im, re, im, maxIterations, squaredThreshold);
+			}
+		}
+	}
+
+	/**
+	 * Runs a single instruction. Every operation computes its parts in the
+	 * same order as the source written by {@link KernelCompiler}, so both
+	 * round the same way.
+	 * 
+	 * @param instruction - The instruction to run.
+	 * @param r - Real parts of the registers.
+	 * @param i - Imaginary parts of the registers.
+	 * @param target - Register the instruction writes.
+	 */
+	private static void execute(Instruction instruction, double[] r, double[] i, int target) {
+		int a = instruction.first;
+		int b = instruction.second;
+
+		switch (instruction.operation) {
+		case Formula.CONSTANT:
+			r[target] = instruction.re;
+			i[target] = instruction.im;
+			break;
+		case Formula.NEGATE:
+			r[target] = -r[a];
+			i[target] = -i[a];
+			break;
+		case Formula.ADD:
+			r[target] = r[a] + r[b];
+			i[target] = i[a] + i[b];
+			break;
+		case Formula.SUBTRACT:
+			r[target] = r[a] - r[b];
+			i[target] = i[a] - i[b];
+			break;
+		case Formula.MULTIPLY:
+			r[target] = r[a] * r[b] - i[a] * i[b];
+			i[target] = r[a] * i[b] + i[a] * r[b];
+			break;
+		case Formula.DIVIDE: {
+			double d = r[b] * r[b] + i[b] * i[b];
+			double re = (r[a] * r[b] + i[a] * i[b]) / d;
+			i[target] = (i[a] * r[b] - r[a] * i[b]) / d;
+			r[target] = re;
+			break;
+		}
+		case Formula.SQUARE: {
+			double re = r[a] * r[a] - i[a] * i[a];
+			i[target] = 2 * r[a] * i[a];
+			r[target] = re;
+			break;
+		}
+		case Formula.CONJUGATE:
+			r[target] = r[a];
+			i[target] = -i[a];
+			break;
+		case Formula.ABSOLUTE:
+			r[target] = Math.abs(r[a]);
+			i[target] = Math.abs(i[a]);
+			break;
+		case Formula.EXP: {
+			double e = Math.exp(r[a]);
+			double re = e * Math.cos(i[a]);
+			i[target] = e * Math.sin(i[a]);
+			r[target] = re;
+			break;
+		}
+		case Formula.SIN: {
+			double re = Math.sin(r[a]) * Math.cosh(i[a]);
+			i[target] = Math.cos(r[a]) * Math.sinh(i[a]);
+			r[target] = re;
+			break;
+		}
+		case Formula.COS: {
+			double re = Math.cos(r[a]) * Math.cosh(i[a]);
+			i[target] = -(Math.sin(r[a]) * Math.sinh(i[a]));
+			r[target] = re;
+			break;
+		}
+		default:
+			throw new IllegalStateException("Unknown operation: " + instruction.operation);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.formula;
+
+/**
+ * Kernel runs the escape time loop of a single {@link Formula}. Kernels made
+ * by {@link KernelCompiler} are classes of their own with the formula written
+ * out inside the loop, so the JIT compiles every formula like a hand written
+ * loop.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name Kernel.java
+ */
+public interface Kernel {
+
+	/**
+	 * Iterates the formula from the specified z until its magnitude passes
+	 * the threshold or the maximum number of iterations is reached.
+	 * 
+	 * @param re - Real part of the starting z.
+	 * @param im - Imaginary part of the starting z.
+	 * @param realSeed - Real part of c.
+	 * @param imaginarySeed - Imaginary part of c.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param squaredThreshold - Squared magnitude at which the orbit escapes.
+	 * @return Number of iterations before the orbit escaped.
+	 */
+	int iterate(double re, double im, double realSeed, double imaginarySeed, int maxIterations,
+			double squaredThreshold);
+
+	/**
+	 * Iterates the pixels from startX (inclusive) to endX (exclusive) of an
+	 * unrotated row. Pixel x lies at x * range / width + minRe. In the Julia
+	 * plane every pixel is the starting z and the seed is c, otherwise every
+	 * pixel is both the starting z and c like in the Mandelbrot set.
+	 * 
+	 * @param iterations - Receives the iteration count of pixel x at offset + x.
+	 * @param offset - Index of the pixel at the start of the row.
+	 * @param startX - First pixel to iterate.
+	 * @param endX - Pixel after the last pixel to iterate.
+	 * @param width - Width of the image.
+	 * @param minRe - Real part of the left edge of the image.
+	 * @param range - Width of the image in the complex plane.
+	 * @param im - Imaginary part of the row.
+	 * @param realSeed - Real part of the seed.
+	 * @param imaginarySeed - Imaginary part of the seed.
+	 * @param julia - True to iterate the Julia plane of the seed.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param squaredThreshold - Squared magnitude at which the orbit escapes.
+	 */
+	void iterateRow(int[] iterations, int offset, int startX, int endX, int width, double minRe, double range,
+			double im, double realSeed, double imaginarySeed, boolean julia, int maxIterations,
+			double squaredThreshold);
+}
@@ -0,0 +1,390 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.formula;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import me.oskarmendel.formula.Formula.Instruction;
+
+/**
+ * KernelCompiler turns formulas into kernels. The program of a formula is
+ * written out as Java source of a class with the escape time loop and the
+ * formula inside it, which is compiled in memory with the system Java
+ * compiler and loaded by a class loader of its own. Every formula becomes a
+ * class that only ever runs that formula, so the JIT inlines it completely
+ * and compiles it like a hand written loop.
+ * 
+ * Compiled kernels are kept for every expression, so a formula is only
+ * compiled once. Where there is no Java compiler, such as on a JRE, or the
+ * compiler fails, the formula is interpreted instead.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name KernelCompiler.java
+ */
+public final class KernelCompiler {
+
+	private static final String PACKAGE = KernelCompiler.class.getPackage().getName();
+	private static final AtomicInteger CLASSES = new AtomicInteger();
+	private static final Map<String, Kernel> KERNELS = new ConcurrentHashMap<String, Kernel>();
+
+	private KernelCompiler() {
+	}
+
+	/**
+	 * Returns the kernel of a formula, compiling it the first time it is
+	 * asked for.
+	 * 
+	 * @param formula - The formula to run.
+	 * @return A compiled kernel, or an interpreting one if the formula could
+	 *         not be compiled.
+	 */
+	public static Kernel compile(Formula formula) {
+		return KERNELS.computeIfAbsent(formula.getExpression(), expression -> {
+			Kernel kernel = tryCompile(formula);
+			return kernel != null ? kernel : new InterpretedKernel(formula);
+		});
+	}
+
+	/**
+	 * Returns a kernel that interprets the formula without compiling it.
+	 * 
+	 * @param formula - The formula to run.
+	 * @return An interpreting kernel.
+	 */
+	public static Kernel interpret(Formula formula) {
+		return new InterpretedKernel(formula);
+	}
+
+	/**
+	 * Returns whether a kernel runs a compiled class of its formula.
+	 * 
+	 * @param kernel - The kernel to check.
+	 * @return True if the kernel is compiled, false if it interprets.
+	 */
+	public static boolean isCompiled(Kernel kernel) {
+		return !(kernel instanceof InterpretedKernel);
+	}
+
+	/**
+	 * Compiles a formula into a kernel class and creates an instance of it.
+	 * 
+	 * @param formula - The formula to compile.
+	 * @return The compiled kernel, or null if it could not be compiled.
+	 */
+	private static Kernel tryCompile(Formula formula) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		if (compiler == null) {
+			return null;
+		}
+
+		String simpleName = "CompiledKernel" + CLASSES.incrementAndGet();
+		String className = PACKAGE + "." + simpleName;
+		Source source = new Source(className, generateSource(simpleName, formula));
+
+		// Output and diagnostics are collected so the compiler never prints to
+		// the console.
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+		try (ClassFiles files = new ClassFiles(compiler.getStandardFileManager(diagnostics, Locale.ROOT, null))) {
+			Boolean compiled = compiler.getTask(new StringWriter(), files, diagnostics,
+					Arrays.asList("-classpath", classPath(), "-g:none", "-nowarn"), null, Arrays.asList(source))
+					.call();
+
+			if (!Boolean.TRUE.equals(compiled)) {
+				return null;
+			}
+
+			Class<?> type = new KernelLoader(files.classes).loadClass(className);
+			return (Kernel) type.getDeclaredConstructor().newInstance();
+		} catch (Exception | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the Java source of a kernel class that runs the formula.
+	 * 
+	 * @param simpleName - Name of the class.
+	 * @param formula - The formula to run.
+	 * @return Java source of the class.
+	 */
+	static String generateSource(String simpleName, Formula formula) {
+		Instruction[] program = formula.getProgram();
+		int result = program.length + 1;
+		StringBuilder source = new StringBuilder();
+
+		source.append("package ").append(PACKAGE).append(";\n\n");
+		source.append("public final class ").append(simpleName).append(" implements Kernel {\n\n");
+
+		source.append("\tpublic int iterate(double zr, double zi, double cr, double ci, int maxIterations,\n");
+		source.append("\t\t\tdouble squaredThreshold) {\n");
+		source.append("\t\tint n;\n");
+		source.append("\t\tfor (n = 0; n < maxIterations && zr * zr + zi * zi <= squaredThreshold; n++) {\n");
+
+		for (int k = 0; k < program.length; k++) {
+			appendInstruction(source, program[k], k + 2);
+		}
+
+		source.append("\t\t\tzr = ").append(re(result)).append(";\n");
+		source.append("\t\t\tzi = ").append(im(result)).append(";\n");
+		source.append("\t\t}\n");
+		source.append("\t\treturn n;\n");
+		source.append("\t}\n\n");
+
+		source.append("\tpublic void iterateRow(int[] iterations, int offset, int startX, int endX, int width,\n");
+		source.append("\t\t\tdouble minRe, double range, double im, double realSeed, double imaginarySeed,\n");
+		source.append("\t\t\tboolean julia, int maxIterations, double squaredThreshold) {\n");
+		source.append("\t\tfor (int x = startX; x < endX; x++) {\n");
+		source.append("\t\t\tdouble re = x * range / width + minRe;\n");
+		source.append("\t\t\tif (julia) {\n");
+		source.append("\t\t\t\titerations[offset + x] = iterate(re, im, realSeed, imaginarySeed, maxIterations,\n");
+		source.append("\t\t\t\t\t\tsquaredThreshold);\n");
+		source.append("\t\t\t} else {\n");
+		source.append("\t\t\t\titerations[offset + x] = iterate(re, im, re, im, maxIterations, squaredThreshold);\n");
+		source.append("\t\t\t}\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n");
+		source.append("}\n");
+
+		return source.toString();
+	}
+
+	/**
+	 * Writes the statements of a single instruction, in the same order as
+	 * {@link InterpretedKernel} computes it.
+	 * 
+	 * @param source - The source to append to.
+	 * @param instruction - The instruction to write.
+	 * @param target - Register the instruction writes.
+	 */
+	private static void appendInstruction(StringBuilder source, Instruction instruction, int target) {
+		String ar = re(instruction.first);
+		String ai = im(instruction.first);
+		String br = re(instruction.second);
+		String bi = im(instruction.second);
+		String real;
+		String imaginary;
+
+		switch (instruction.operation) {
+		case Formula.CONSTANT:
+			real = literal(instruction.re);
+			imaginary = literal(instruction.im);
+			break;
+		case Formula.NEGATE:
+			real = "-" + ar;
+			imaginary = "-" + ai;
+			break;
+		case Formula.ADD:
+			real = ar + " + " + br;
+			imaginary = ai + " + " + bi;
+			break;
+		case Formula.SUBTRACT:
+			real = ar + " - " + br;
+			imaginary = ai + " - " + bi;
+			break;
+		case Formula.MULTIPLY:
+			real = ar + " * " + br + " - " + ai + " * " + bi;
+			imaginary = ar + " * " + bi + " + " + ai + " * " + br;
+			break;
+		case Formula.DIVIDE:
+			String d = "d" + target;
+			source.append("\t\t\tdouble ").append(d).append(" = ").append(br).append(" * ").append(br)
+					.append(" + ").append(bi).append(" * ").append(bi).append(";\n");
+			real = "(" + ar + " * " + br + " + " + ai + " * " + bi + ") / " + d;
+			imaginary = "(" + ai + " * " + br + " - " + ar + " * " + bi + ") / " + d;
+			break;
+		case Formula.SQUARE:
+			real = ar + " * " + ar + " - " + ai + " * " + ai;
+			imaginary = "2 * " + ar + " * " + ai;
+			break;
+		case Formula.CONJUGATE:
+			real = ar;
+			imaginary = "-" + ai;
+			break;
+		case Formula.ABSOLUTE:
+			real = "Math.abs(" + ar + ")";
+			imaginary = "Math.abs(" + ai + ")";
+			break;
+		case Formula.EXP:
+			String e = "e" + target;
+			source.append("\t\t\tdouble ").append(e).append(" = Math.exp(").append(ar).append(");\n");
+			real = e + " * Math.cos(" + ai + ")";
+			imaginary = e + " * Math.sin(" + ai + ")";
+			break;
+		case Formula.SIN:
+			real = "Math.sin(" + ar + ") * Math.cosh(" + ai + ")";
+			imaginary = "Math.cos(" + ar + ") * Math.sinh(" + ai + ")";
+			break;
+		case Formula.COS:
+			real = "Math.cos(" + ar + ") * Math.cosh(" + ai + ")";
+			imaginary = "-(Math.sin(" + ar + ") * Math.sinh(" + ai + "))";
+			break;
+		default:
+			throw new IllegalStateException("Unknown operation: " + instruction.operation);
+		}
+
+		source.append("\t\t\tdouble ").append(re(target)).append(" = ").append(real).append(";\n");
+		source.append("\t\t\tdouble ").append(im(target)).append(" = ").append(imaginary).append(";\n");
+	}
+
+	/**
+	 * Returns the name of the real part of a register.
+	 */
+	private static String re(int register) {
+		return register == Formula.Z ? "zr" : register == Formula.C ? "cr" : "r" + register;
+	}
+
+	/**
+	 * Returns the name of the imaginary part of a register.
+	 */
+	private static String im(int register) {
+		return register == Formula.Z ? "zi" : register == Formula.C ? "ci" : "i" + register;
+	}
+
+	/**
+	 * Writes a constant as a Java literal, in parentheses when it is negative
+	 * so it can follow any operator.
+	 */
+	private static String literal(double value) {
+		String literal = Double.toString(value);
+		return value < 0 ? "(" + literal + ")" : literal;
+	}
+
+	/**
+	 * Returns the class path the kernel classes are compiled against, which
+	 * has to include the Kernel interface.
+	 * 
+	 * @return The class path of this process and of the Kernel interface.
+	 */
+	private static String classPath() {
+		String classPath = System.getProperty("java.class.path", "");
+		CodeSource code = Kernel.class.getProtectionDomain().getCodeSource();
+
+		if (code != null && code.getLocation() != null) {
+			try {
+				classPath = new File(code.getLocation().toURI()).getPath() + File.pathSeparator + classPath;
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// Kernels compile against the class path of the process alone.
+			}
+		}
+		return classPath;
+	}
+
+	/**
+	 * The source of a kernel class held in memory.
+	 */
+	private static final class Source extends SimpleJavaFileObject {
+
+		private final String code;
+
+		Source(String className, String code) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return code;
+		}
+	}
+
+	/**
+	 * File manager that keeps the compiled classes in memory instead of
+	 * writing them to disk.
+	 */
+	private static final class ClassFiles extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+		private final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+
+		ClassFiles(StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+				JavaFileObject.Kind kind, FileObject sibling) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			classes.put(className, bytes);
+
+			return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension),
+					kind) {
+				@Override
+				public OutputStream openOutputStream() {
+					return bytes;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Loads the classes of a single kernel, so they can be unloaded together
+	 * with it.
+	 */
+	private static final class KernelLoader extends ClassLoader {
+
+		private final Map<String, ByteArrayOutputStream> classes;
+
+		KernelLoader(Map<String, ByteArrayOutputStream> classes) {
+			super(Kernel.class.getClassLoader());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			ByteArrayOutputStream bytes = classes.get(name);
+
+			if (bytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+
+			byte[] code = bytes.toByteArray();
+			return defineClass(name, code, 0, code.length);
+		}
+	}
+}
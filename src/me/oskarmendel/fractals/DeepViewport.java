@@ -0,0 +1,225 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * DeepViewport is a Viewport whose center is kept with arbitrary precision.
+ * A double only tells points apart down to about 1e-16 of their magnitude, so
+ * once the window is zoomed beyond roughly 1e-13 its center has to be kept as
+ * a BigDecimal. The pixels of the window are then described by their double
+ * offset from the center, which is precise at any scale.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name DeepViewport.java
+ */
+public final class DeepViewport {
+
+	private static final int GUARD_DIGITS = 20;
+
+	private final BigDecimal centerRe;
+	private final BigDecimal centerIm;
+	private final double scale;
+	private final double rotation;
+
+	private final double cos;
+	private final double sin;
+
+	/**
+	 * Constructs a new DeepViewport.
+	 * 
+	 * @param centerRe - Real part of the center of the window.
+	 * @param centerIm - Imaginary part of the center of the window.
+	 * @param scale - Distance from the center to the edges of the window.
+	 * @param rotation - Counter clockwise rotation of the window in radians.
+	 */
+	public DeepViewport(BigDecimal centerRe, BigDecimal centerIm, double scale, double rotation) {
+		if (!(scale > 0)) {
+			throw new IllegalArgumentException("Scale must be positive: " + scale);
+		}
+
+		this.centerRe = centerRe;
+		this.centerIm = centerIm;
+		this.scale = scale;
+		this.rotation = rotation;
+		this.cos = Math.cos(rotation);
+		this.sin = Math.sin(rotation);
+	}
+
+	/**
+	 * Constructs a new DeepViewport with the same window as a Viewport.
+	 * 
+	 * @param viewport - Viewport to copy.
+	 */
+	public DeepViewport(Viewport viewport) {
+		this(new BigDecimal(viewport.getCenterRe()), new BigDecimal(viewport.getCenterIm()), viewport.getScale(),
+				viewport.getRotation());
+	}
+
+	/**
+	 * Returns the real part of the center of the window.
+	 * 
+	 * @return Real part of the center.
+	 */
+	public BigDecimal getCenterRe() {
+		return this.centerRe;
+	}
+
+	/**
+	 * Returns the imaginary part of the center of the window.
+	 * 
+	 * @return Imaginary part of the center.
+	 */
+	public BigDecimal getCenterIm() {
+		return this.centerIm;
+	}
+
+	/**
+	 * Returns the distance from the center to the edges of the window.
+	 * 
+	 * @return Scale of the window.
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * Returns the counter clockwise rotation of the window.
+	 * 
+	 * @return Rotation in radians.
+	 */
+	public double getRotation() {
+		return this.rotation;
+	}
+
+	/**
+	 * Returns the precision needed to tell the pixels of the window apart,
+	 * with guard digits to absorb the rounding of a long orbit.
+	 * 
+	 * @return MathContext for calculations at the scale of this window.
+	 */
+	public MathContext getMathContext() {
+		int digits = (int) Math.ceil(-Math.log10(scale)) + GUARD_DIGITS;
+		return new MathContext(Math.max(digits, GUARD_DIGITS));
+	}
+
+	/**
+	 * Returns the real part of the offset from the center to a pixel.
+	 * 
+	 * @param x - X coordinate of the pixel.
+	 * @param y - Y coordinate of the pixel.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return Real part of the offset.
+	 */
+	public double offsetRe(double x, double y, int width, int height) {
+		double u = x * 2 * scale / width - scale;
+		double v = y * 2 * scale / height - scale;
+		return u * cos - v * sin;
+	}
+
+	/**
+	 * Returns the imaginary part of the offset from the center to a pixel.
+	 * 
+	 * @param x - X coordinate of the pixel.
+	 * @param y - Y coordinate of the pixel.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return Imaginary part of the offset.
+	 */
+	public double offsetIm(double x, double y, int width, int height) {
+		double u = x * 2 * scale / width - scale;
+		double v = y * 2 * scale / height - scale;
+		return u * sin + v * cos;
+	}
+
+	/**
+	 * Moves the window by the specified number of pixels.
+	 * 
+	 * @param dx - Pixels to move the window to the right.
+	 * @param dy - Pixels to move the window down.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The moved DeepViewport.
+	 */
+	public DeepViewport pan(double dx, double dy, int width, int height) {
+		return moveCenter(offsetRe(width / 2.0 + dx, height / 2.0 + dy, width, height),
+				offsetIm(width / 2.0 + dx, height / 2.0 + dy, width, height), scale);
+	}
+
+	/**
+	 * Scales the window around the specified pixel, which shows the same point
+	 * of the complex plane before and after zooming.
+	 * 
+	 * @param factor - Factor to scale the window by, less than one zooms in.
+	 * @param x - X coordinate of the pixel to zoom around.
+	 * @param y - Y coordinate of the pixel to zoom around.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The scaled DeepViewport.
+	 */
+	public DeepViewport zoom(double factor, double x, double y, int width, int height) {
+		return moveCenter(offsetRe(x, y, width, height) * (1 - factor), offsetIm(x, y, width, height) * (1 - factor),
+				scale * factor);
+	}
+
+	/**
+	 * Returns the closest Viewport to this window.
+	 * 
+	 * @return Viewport with the center rounded to doubles.
+	 */
+	public Viewport toViewport() {
+		return new Viewport(centerRe.doubleValue(), centerIm.doubleValue(), scale, rotation);
+	}
+
+	/**
+	 * Moves the center by the specified offset and sets the scale.
+	 * 
+	 * @param re - Real part of the offset.
+	 * @param im - Imaginary part of the offset.
+	 * @param scale - Scale of the new window.
+	 * @return The new DeepViewport.
+	 */
+	private DeepViewport moveCenter(double re, double im, double scale) {
+		MathContext mc = new DeepViewport(centerRe, centerIm, scale, rotation).getMathContext();
+
+		return new DeepViewport(centerRe.add(new BigDecimal(re), mc), centerIm.add(new BigDecimal(im), mc), scale,
+				rotation);
+	}
+
+	/**
+	 * Returns the viewport as a string with its center, scale and rotation.
+	 * 
+	 * @return A string of the viewport.
+	 */
+	@Override
+	public String toString() {
+		return "DeepViewport[center=" + centerRe.toPlainString() + (centerIm.signum() < 0 ? " - " : " + ")
+				+ centerIm.abs().toPlainString() + "i, scale=" + scale + ", rotation=" + rotation + "]";
+	}
+}
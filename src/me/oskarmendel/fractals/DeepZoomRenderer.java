@@ -0,0 +1,588 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import me.oskarmendel.render.Colorizer;
+
+/**
+ * DeepZoomRenderer renders a JuliaFractal zoomed in far beyond what doubles
+ * can resolve, using perturbation theory. The orbit of one reference point is
+ * iterated with arbitrary precision and every other pixel only iterates its
+ * difference d from the reference orbit Z, which stays small enough for
+ * doubles:
+ * 
+ * d' = 2Zd + d^2
+ * 
+ * The first iterations that every pixel shares are skipped with a series
+ * approximation of d in terms of its starting offset, checked against probe
+ * pixels at the edges of the frame. Pixels whose difference grows as large as
+ * the orbit itself lose their precision, these glitched pixels are detected
+ * and rendered again against a new reference inside them. Pixels still
+ * glitched after the last of those references are iterated with arbitrary
+ * precision on their own, which is exact but slow, and counted.
+ * 
+ * More information is available at:
+ * https://en.wikipedia.org/wiki/Plotting_algorithms_for_the_Mandelbrot_set#Perturbation_theory_and_series_approximation
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name DeepZoomRenderer.java
+ */
+public class DeepZoomRenderer {
+
+	/**
+	 * Scale below which a Viewport no longer resolves its pixels.
+	 */
+	public static final double MIN_VIEWPORT_SCALE = 1e-12;
+
+	private static final double THRESHOLD = 2;
+	private static final double SQUARED_THRESHOLD = EscapeTime.squaredThreshold(THRESHOLD);
+	private static final double GLITCH_TOLERANCE = 1e-6;
+	private static final double SERIES_TOLERANCE = 1e-12;
+	private static final int MAX_REFERENCES = 16;
+	private static final int BAND_ROWS = 4;
+	private static final int GLITCHED = -1;
+
+	private final JuliaFractal fractal;
+	private volatile Colorizer colorizer = Colorizer.GRAY;
+	private volatile int lastExactPixels;
+
+	/**
+	 * Constructs a new DeepZoomRenderer for the specified fractal.
+	 * 
+	 * @param fractal - JuliaFractal to render.
+	 */
+	public DeepZoomRenderer(JuliaFractal fractal) {
+		this.fractal = fractal;
+	}
+
+	/**
+	 * Sets the colorizer the iteration counts of the following frames are
+	 * colored with.
+	 * 
+	 * @param colorizer - Colorizer to color the counts with.
+	 */
+	public void setColorizer(Colorizer colorizer) {
+		this.colorizer = colorizer;
+	}
+
+	/**
+	 * Returns the number of pixels of the last frame that were still glitched
+	 * after the last reference and had to be iterated on their own.
+	 * 
+	 * @return Number of pixels iterated with arbitrary precision.
+	 */
+	public int getLastExactPixels() {
+		return lastExactPixels;
+	}
+
+	/**
+	 * Renders a frame as ARGB pixels into a buffer taken from the specified
+	 * supplier and hands it to the listener, which owns the buffer from then on.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param buffers - Supplies the pixel buffer.
+	 * @param listener - Receives the pixels of the frame.
+	 * @param cancelled - Returns true once the frame is no longer wanted.
+	 * @return Histogram of the iteration counts of the frame, including the
+	 *         maximum number of iterations it was rendered with.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	public IterationHistogram render(int width, int height, double realSeed, double imaginarySeed,
+			DeepViewport viewport, Supplier<int[]> buffers, Consumer<int[]> listener, BooleanSupplier cancelled) {
+		int maxIterations = fractal.getMaxIterations();
+		int[] iterations = render(width, height, realSeed, imaginarySeed, viewport, maxIterations, cancelled);
+		listener.accept(colorizer.colorize(iterations, maxIterations, buffers.get(), fractal.getPool()));
+
+		return fractal.completeFrame(iterations, maxIterations);
+	}
+
+	/**
+	 * Renders the iteration counts of a frame.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param cancelled - Returns true once the frame is no longer wanted.
+	 * @return Array of width * height iteration counts.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	public int[] render(int width, int height, double realSeed, double imaginarySeed, DeepViewport viewport,
+			BooleanSupplier cancelled) {
+		return render(width, height, realSeed, imaginarySeed, viewport, fractal.getMaxIterations(), cancelled);
+	}
+
+	/**
+	 * Renders the iteration counts of a frame with the specified maximum
+	 * number of iterations.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param cancelled - Returns true once the frame is no longer wanted.
+	 * @return Array of width * height iteration counts.
+	 */
+	private int[] render(int width, int height, double realSeed, double imaginarySeed, DeepViewport viewport,
+			int maxIterations, BooleanSupplier cancelled) {
+		int[] iterations = new int[width * height];
+
+		// The first reference is the center of the window, which every pixel
+		// is close to, so the series approximation holds for the whole frame.
+		Reference reference = new Reference(viewport.getCenterRe(), viewport.getCenterIm(), 0, 0, realSeed,
+				imaginarySeed, maxIterations, viewport.getMathContext());
+		reference.approximateSeries(probes(viewport, width, height, true), probes(viewport, width, height, false));
+
+		Pass pass = new Pass(iterations, null, width, height, viewport, reference, realSeed, imaginarySeed,
+				maxIterations, cancelled);
+		run(pass);
+
+		for (int references = 1; references < MAX_REFERENCES; references++) {
+			int[] glitched = collectGlitched(iterations);
+
+			if (glitched.length == 0) {
+				lastExactPixels = 0;
+				return iterations;
+			}
+
+			// Rebase the glitched pixels onto a new reference in their middle.
+			int middle = glitched[glitched.length / 2];
+			double offsetRe = viewport.offsetRe(middle % width, middle / width, width, height);
+			double offsetIm = viewport.offsetIm(middle % width, middle / width, width, height);
+			MathContext mc = viewport.getMathContext();
+
+			reference = new Reference(viewport.getCenterRe().add(new BigDecimal(offsetRe), mc),
+					viewport.getCenterIm().add(new BigDecimal(offsetIm), mc), offsetRe, offsetIm, realSeed,
+					imaginarySeed, maxIterations, mc);
+			run(new Pass(iterations, glitched, width, height, viewport, reference, realSeed, imaginarySeed,
+					maxIterations, cancelled));
+		}
+
+		// Pixels still glitched after the last reference are their own
+		// reference, a difference of zero can not lose its precision.
+		int[] glitched = collectGlitched(iterations);
+
+		run(new Pass(iterations, glitched, width, height, viewport, null, realSeed, imaginarySeed,
+				maxIterations, cancelled));
+		lastExactPixels = glitched.length;
+		return iterations;
+	}
+
+	/**
+	 * Returns the offsets of the probe pixels that check the series
+	 * approximation: the corners of the frame and the middles of its edges.
+	 * 
+	 * @param viewport - The window of the complex plane to render.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param real - True for the real parts, false for the imaginary parts.
+	 * @return Offsets of the probe pixels from the center.
+	 */
+	private static double[] probes(DeepViewport viewport, int width, int height, boolean real) {
+		double[] xs = { 0, width / 2.0, width - 1, 0, width - 1, 0, width / 2.0, width - 1 };
+		double[] ys = { 0, 0, 0, height / 2.0, height / 2.0, height - 1, height - 1, height - 1 };
+		double[] offsets = new double[xs.length];
+
+		for (int i = 0; i < xs.length; i++) {
+			offsets[i] = real ? viewport.offsetRe(xs[i], ys[i], width, height)
+					: viewport.offsetIm(xs[i], ys[i], width, height);
+		}
+		return offsets;
+	}
+
+	/**
+	 * Runs a pass in parallel when more than one thread is used.
+	 * 
+	 * @param pass - The pass to run.
+	 */
+	private void run(Pass pass) {
+		ForkJoinPool pool = fractal.getPool();
+		int rows = pass.pixels == null ? pass.height : pass.pixels.length;
+
+		if (pool != null) {
+			pool.invoke(new Band(pass, 0, rows));
+		} else {
+			pass.render(0, rows);
+		}
+	}
+
+	/**
+	 * Returns the indices of every glitched pixel.
+	 * 
+	 * @param iterations - Iteration counts of the frame.
+	 * @return Indices of the glitched pixels in ascending order.
+	 */
+	private static int[] collectGlitched(int[] iterations) {
+		int count = 0;
+		for (int i = 0; i < iterations.length; i++) {
+			if (iterations[i] == GLITCHED) {
+				count++;
+			}
+		}
+
+		int[] glitched = new int[count];
+		count = 0;
+		for (int i = 0; i < iterations.length; i++) {
+			if (iterations[i] == GLITCHED) {
+				glitched[count++] = i;
+			}
+		}
+		return glitched;
+	}
+
+	/**
+	 * The orbit of a reference point, iterated with arbitrary precision and
+	 * stored as doubles, with the coefficients of the series approximation.
+	 */
+	private static final class Reference {
+
+		private final double offsetRe;
+		private final double offsetIm;
+		private final double[] orbitRe;
+		private final double[] orbitIm;
+		private final int length;
+		private final int maxIterations;
+
+		private int skip = 0;
+		private double aRe = 1, aIm = 0;
+		private double bRe = 0, bIm = 0;
+		private double cRe = 0, cIm = 0;
+
+		/**
+		 * Iterates the reference orbit until it escapes or reaches the maximum
+		 * number of iterations.
+		 * 
+		 * @param re - Real part of the reference point.
+		 * @param im - Imaginary part of the reference point.
+		 * @param offsetRe - Real part of the offset from the center to the reference.
+		 * @param offsetIm - Imaginary part of the offset from the center to the reference.
+		 * @param realSeed - The seed number for the real number.
+		 * @param imaginarySeed - The seed number for the imaginary number.
+		 * @param maxIterations - Maximum number of iterations.
+		 * @param mc - Precision of the orbit.
+		 */
+		Reference(BigDecimal re, BigDecimal im, double offsetRe, double offsetIm, double realSeed,
+				double imaginarySeed, int maxIterations, MathContext mc) {
+			BigDecimal seedRe = new BigDecimal(realSeed);
+			BigDecimal seedIm = new BigDecimal(imaginarySeed);
+			BigDecimal two = BigDecimal.valueOf(2);
+
+			this.offsetRe = offsetRe;
+			this.offsetIm = offsetIm;
+			this.maxIterations = maxIterations;
+			this.orbitRe = new double[maxIterations + 1];
+			this.orbitIm = new double[maxIterations + 1];
+
+			int n = 0;
+			while (true) {
+				orbitRe[n] = re.doubleValue();
+				orbitIm[n] = im.doubleValue();
+
+				if (n == maxIterations
+						|| orbitRe[n] * orbitRe[n] + orbitIm[n] * orbitIm[n] > SQUARED_THRESHOLD) {
+					break;
+				}
+
+				BigDecimal nextRe = re.multiply(re, mc).subtract(im.multiply(im, mc), mc).add(seedRe, mc);
+				im = two.multiply(re, mc).multiply(im, mc).add(seedIm, mc);
+				re = nextRe;
+				n++;
+			}
+			this.length = n + 1;
+		}
+
+		/**
+		 * Finds how many iterations the series approximation can skip for the
+		 * pixels of a frame. The series d = A d0 + B d0^2 + C d0^3 is checked
+		 * against probe pixels that are iterated alongside it, and it is used
+		 * for as long as it predicts every probe within the tolerance.
+		 * 
+		 * @param probeRe - Real parts of the offsets of the probe pixels.
+		 * @param probeIm - Imaginary parts of the offsets of the probe pixels.
+		 */
+		void approximateSeries(double[] probeRe, double[] probeIm) {
+			double[] dRe = probeRe.clone();
+			double[] dIm = probeIm.clone();
+			double a2Re = 1, a2Im = 0;
+			double b2Re = 0, b2Im = 0;
+			double c2Re = 0, c2Im = 0;
+
+			for (int n = 0; n < length - 2; n++) {
+				double zRe = 2 * orbitRe[n];
+				double zIm = 2 * orbitIm[n];
+
+				// A' = 2ZA, B' = 2ZB + A^2, C' = 2ZC + 2AB
+				double nextARe = zRe * a2Re - zIm * a2Im;
+				double nextAIm = zRe * a2Im + zIm * a2Re;
+				double nextBRe = zRe * b2Re - zIm * b2Im + a2Re * a2Re - a2Im * a2Im;
+				double nextBIm = zRe * b2Im + zIm * b2Re + 2 * a2Re * a2Im;
+				double nextCRe = zRe * c2Re - zIm * c2Im + 2 * (a2Re * b2Re - a2Im * b2Im);
+				double nextCIm = zRe * c2Im + zIm * c2Re + 2 * (a2Re * b2Im + a2Im * b2Re);
+
+				boolean valid = true;
+				for (int i = 0; i < dRe.length; i++) {
+					// d' = 2Zd + d^2
+					double nextRe = zRe * dRe[i] - zIm * dIm[i] + dRe[i] * dRe[i] - dIm[i] * dIm[i];
+					dIm[i] = zRe * dIm[i] + zIm * dRe[i] + 2 * dRe[i] * dIm[i];
+					dRe[i] = nextRe;
+
+					double errorRe = seriesRe(nextARe, nextAIm, nextBRe, nextBIm, nextCRe, nextCIm, probeRe[i],
+							probeIm[i]) - dRe[i];
+					double errorIm = seriesIm(nextARe, nextAIm, nextBRe, nextBIm, nextCRe, nextCIm, probeRe[i],
+							probeIm[i]) - dIm[i];
+
+					valid &= Math.hypot(errorRe, errorIm) <= SERIES_TOLERANCE * Math.hypot(dRe[i], dIm[i]);
+				}
+
+				if (!valid) {
+					break;
+				}
+
+				a2Re = nextARe;
+				a2Im = nextAIm;
+				b2Re = nextBRe;
+				b2Im = nextBIm;
+				c2Re = nextCRe;
+				c2Im = nextCIm;
+				skip = n + 1;
+			}
+
+			aRe = a2Re;
+			aIm = a2Im;
+			bRe = b2Re;
+			bIm = b2Im;
+			cRe = c2Re;
+			cIm = c2Im;
+		}
+
+		/**
+		 * Returns the real part of the series A d0 + B d0^2 + C d0^3.
+		 */
+		private static double seriesRe(double aRe, double aIm, double bRe, double bIm, double cRe, double cIm,
+				double dRe, double dIm) {
+			double d2Re = dRe * dRe - dIm * dIm;
+			double d2Im = 2 * dRe * dIm;
+			double d3Re = d2Re * dRe - d2Im * dIm;
+			double d3Im = d2Re * dIm + d2Im * dRe;
+			return aRe * dRe - aIm * dIm + bRe * d2Re - bIm * d2Im + cRe * d3Re - cIm * d3Im;
+		}
+
+		/**
+		 * Returns the imaginary part of the series A d0 + B d0^2 + C d0^3.
+		 */
+		private static double seriesIm(double aRe, double aIm, double bRe, double bIm, double cRe, double cIm,
+				double dRe, double dIm) {
+			double d2Re = dRe * dRe - dIm * dIm;
+			double d2Im = 2 * dRe * dIm;
+			double d3Re = d2Re * dRe - d2Im * dIm;
+			double d3Im = d2Re * dIm + d2Im * dRe;
+			return aRe * dIm + aIm * dRe + bRe * d2Im + bIm * d2Re + cRe * d3Im + cIm * d3Re;
+		}
+
+		/**
+		 * Iterates a pixel as a difference from this reference orbit.
+		 * 
+		 * @param dRe - Real part of the offset from the reference to the pixel.
+		 * @param dIm - Imaginary part of the offset from the reference to the pixel.
+		 * @param maxIterations - Maximum number of iterations.
+		 * @return Number of iterations before the pixel escaped, or GLITCHED.
+		 */
+		int iterate(double dRe, double dIm, int maxIterations) {
+			int n = 0;
+
+			if (skip > 0) {
+				double nextRe = seriesRe(aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+				dIm = seriesIm(aRe, aIm, bRe, bIm, cRe, cIm, dRe, dIm);
+				dRe = nextRe;
+				n = skip;
+			}
+
+			for (; n < maxIterations; n++) {
+				if (n >= length) {
+					// The reference escaped before this pixel did.
+					return GLITCHED;
+				}
+
+				double zRe = orbitRe[n];
+				double zIm = orbitIm[n];
+				double re = zRe + dRe;
+				double im = zIm + dIm;
+				double magnitude = re * re + im * im;
+
+				if (magnitude > SQUARED_THRESHOLD) {
+					return n;
+				}
+
+				// The difference is as large as the orbit, d has lost its precision.
+				if (magnitude < GLITCH_TOLERANCE * (zRe * zRe + zIm * zIm)) {
+					return GLITCHED;
+				}
+
+				double nextRe = 2 * (zRe * dRe - zIm * dIm) + dRe * dRe - dIm * dIm;
+				dIm = 2 * (zRe * dIm + zIm * dRe) + 2 * dRe * dIm;
+				dRe = nextRe;
+			}
+
+			return maxIterations;
+		}
+	}
+
+	/**
+	 * A pass over either every pixel of the frame or a set of glitched pixels,
+	 * iterated against one reference, or against a reference at every pixel
+	 * if the pass has none.
+	 */
+	private final class Pass {
+
+		private final int[] iterations;
+		private final int[] pixels;
+		private final int width;
+		private final int height;
+		private final DeepViewport viewport;
+		private final Reference reference;
+		private final double realSeed;
+		private final double imaginarySeed;
+		private final int maxIterations;
+		private final BooleanSupplier cancelled;
+
+		Pass(int[] iterations, int[] pixels, int width, int height, DeepViewport viewport, Reference reference,
+				double realSeed, double imaginarySeed, int maxIterations, BooleanSupplier cancelled) {
+			this.iterations = iterations;
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.viewport = viewport;
+			this.reference = reference;
+			this.realSeed = realSeed;
+			this.imaginarySeed = imaginarySeed;
+			this.maxIterations = maxIterations;
+			this.cancelled = cancelled;
+		}
+
+		/**
+		 * Renders rows of the frame, or a range of the glitched pixels.
+		 * 
+		 * @param start - First row or glitched pixel to render.
+		 * @param end - Row or glitched pixel after the last one to render.
+		 */
+		void render(int start, int end) {
+			if (pixels != null) {
+				for (int i = start; i < end; i++) {
+					if ((reference == null || i % width == 0) && cancelled.getAsBoolean()) {
+						throw new CancellationException();
+					}
+					renderPixel(pixels[i]);
+				}
+				return;
+			}
+
+			for (int y = start; y < end; y++) {
+				if (cancelled.getAsBoolean()) {
+					throw new CancellationException();
+				}
+
+				for (int x = 0; x < width; x++) {
+					renderPixel(y * width + x);
+				}
+			}
+		}
+
+		/**
+		 * Renders a single pixel against the reference of this pass.
+		 * 
+		 * @param index - Index of the pixel in the frame.
+		 */
+		private void renderPixel(int index) {
+			int x = index % width;
+			int y = index / width;
+			double offsetRe = viewport.offsetRe(x, y, width, height);
+			double offsetIm = viewport.offsetIm(x, y, width, height);
+
+			if (reference == null) {
+				MathContext mc = viewport.getMathContext();
+				Reference own = new Reference(viewport.getCenterRe().add(new BigDecimal(offsetRe), mc),
+						viewport.getCenterIm().add(new BigDecimal(offsetIm), mc), offsetRe, offsetIm,
+						realSeed, imaginarySeed, maxIterations, mc);
+
+				iterations[index] = own.iterate(0, 0, maxIterations);
+				return;
+			}
+
+			iterations[index] = reference.iterate(offsetRe - reference.offsetRe, offsetIm - reference.offsetIm,
+					maxIterations);
+		}
+	}
+
+	/**
+	 * A range of rows or glitched pixels that splits itself in half until it
+	 * is small enough to render directly.
+	 */
+	private class Band extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Pass pass;
+		private final int start;
+		private final int end;
+
+		Band(Pass pass, int start, int end) {
+			this.pass = pass;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			// Pixels without a reference each iterate a whole orbit in arbitrary
+			// precision and are split one by one.
+			int size = pass.pixels == null ? BAND_ROWS : pass.reference == null ? 1 : BAND_ROWS * pass.width;
+
+			if (end - start <= size) {
+				pass.render(start, end);
+				return;
+			}
+
+			int middle = (start + end) >>> 1;
+			invokeAll(new Band(pass, start, middle), new Band(pass, middle, end));
+		}
+	}
+}
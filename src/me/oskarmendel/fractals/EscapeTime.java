@@ -0,0 +1,224 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+/**
+ * EscapeTime holds the allocation free escape time loop shared by the escape
+ * time fractals. The complex number z is kept as two doubles in locals and the
+ * escape test compares the squared magnitude so no square root is taken.
+ * 
+ * The lane kernel iterates four pixels of a row in lockstep. Each orbit is a
+ * long chain of dependent multiplications, so interleaving four independent
+ * orbits lets the processor overlap their latencies.
+ * 
+ * More information is available at:
+ * https://en.wikipedia.org/wiki/Julia_set#Pseudocode_for_normal_Julia_sets
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name EscapeTime.java
+ */
+final class EscapeTime {
+
+	private EscapeTime() {
+	}
+
+	/**
+	 * Returns the largest squared magnitude whose square root is still within
+	 * the specified threshold. Comparing against this value instead of
+	 * threshold * threshold keeps the exact same iteration counts as comparing
+	 * the rounded square root against the threshold.
+	 * 
+	 * @param threshold - The escape threshold.
+	 * @return Largest squared magnitude that has not escaped.
+	 */
+	static double squaredThreshold(double threshold) {
+		double limit = threshold * threshold;
+		while (Math.sqrt(Math.nextUp(limit)) <= threshold) {
+			limit = Math.nextUp(limit);
+		}
+		while (Math.sqrt(limit) > threshold) {
+			limit = Math.nextDown(limit);
+		}
+		return limit;
+	}
+
+	/**
+	 * Iterates z = z^2 + c from the specified starting point until the orbit
+	 * escapes or the maximum number of iterations is reached.
+	 * 
+	 * @param re - Real part of the starting point z.
+	 * @param im - Imaginary part of the starting point z.
+	 * @param realSeed - Real part of c.
+	 * @param imaginarySeed - Imaginary part of c.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param squaredThreshold - Squared magnitude at which the orbit escapes.
+	 * @return Number of iterations before the orbit escaped.
+	 */
+	static int iterate(double re, double im, double realSeed, double imaginarySeed, int maxIterations,
+			double squaredThreshold) {
+		double re2 = re * re;
+		double im2 = im * im;
+		int i;
+
+		for (i = 0; i < maxIterations && re2 + im2 <= squaredThreshold; i++) {
+			im = 2 * re * im + imaginarySeed;
+			re = re2 - im2 + realSeed;
+			re2 = re * re;
+			im2 = im * im;
+		}
+
+		return i;
+	}
+
+	/**
+	 * Iterates z = z^2 + c like {@link #iterate} while checking whether the
+	 * orbit has become periodic. The orbit is compared against a checkpoint
+	 * that is moved forward after every doubling number of iterations, Brent's
+	 * cycle detection, and an orbit that returns to within the tolerance of
+	 * its checkpoint is in a cycle that never escapes. Such pixels return the
+	 * maximum number of iterations without running all of them.
+	 * 
+	 * More information is available at:
+	 * https://en.wikipedia.org/wiki/Cycle_detection#Brent's_algorithm
+	 * 
+	 * @param re - Real part of the starting point z.
+	 * @param im - Imaginary part of the starting point z.
+	 * @param realSeed - Real part of c.
+	 * @param imaginarySeed - Imaginary part of c.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param squaredThreshold - Squared magnitude at which the orbit escapes.
+	 * @param squaredTolerance - Squared distance at which two points of the orbit are equal.
+	 * @return Number of iterations before the orbit escaped.
+	 */
+	static int iteratePeriodic(double re, double im, double realSeed, double imaginarySeed, int maxIterations,
+			double squaredThreshold, double squaredTolerance) {
+		double re2 = re * re;
+		double im2 = im * im;
+		double checkRe = re;
+		double checkIm = im;
+		int period = 0;
+		int checkInterval = 2;
+		int i;
+
+		for (i = 0; i < maxIterations && re2 + im2 <= squaredThreshold; i++) {
+			im = 2 * re * im + imaginarySeed;
+			re = re2 - im2 + realSeed;
+			re2 = re * re;
+			im2 = im * im;
+
+			double dRe = re - checkRe;
+			double dIm = im - checkIm;
+			if (dRe * dRe + dIm * dIm <= squaredTolerance) {
+				return maxIterations;
+			}
+
+			if (++period == checkInterval) {
+				checkRe = re;
+				checkIm = im;
+				period = 0;
+				checkInterval <<= 1;
+			}
+		}
+
+		return i;
+	}
+
+	/**
+	 * Iterates z = z^2 + c for a row of pixels, four pixels at a time. A lane
+	 * stops counting once its orbit escapes and the row continues until every
+	 * lane has escaped or the maximum number of iterations is reached, giving
+	 * the same counts as {@link #iterate}.
+	 * 
+	 * @param iterations - Array to write the iteration counts to.
+	 * @param offset - Index in the array of the first pixel of the row.
+	 * @param startX - First pixel of the row to iterate.
+	 * @param endX - Pixel after the last pixel of the row to iterate.
+	 * @param width - Number of pixels in the row.
+	 * @param minRe - Real part of the first pixel in the row.
+	 * @param rangeRe - Range of the real part across the whole row.
+	 * @param im - Imaginary part of every pixel in the row.
+	 * @param realSeed - Real part of c.
+	 * @param imaginarySeed - Imaginary part of c.
+	 * @param maxIterations - Maximum number of iterations.
+	 * @param squaredThreshold - Squared magnitude at which the orbit escapes.
+	 */
+	static void iterateRow(int[] iterations, int offset, int startX, int endX, int width, double minRe,
+			double rangeRe, double im, double realSeed, double imaginarySeed, int maxIterations,
+			double squaredThreshold) {
+		int x = startX;
+
+		for (; x + 4 <= endX; x += 4) {
+			double r0 = x * rangeRe / width + minRe;
+			double r1 = (x + 1) * rangeRe / width + minRe;
+			double r2 = (x + 2) * rangeRe / width + minRe;
+			double r3 = (x + 3) * rangeRe / width + minRe;
+			double i0 = im, i1 = im, i2 = im, i3 = im;
+			int n0 = 0, n1 = 0, n2 = 0, n3 = 0;
+			boolean a0 = true, a1 = true, a2 = true, a3 = true;
+
+			for (int i = 0; i < maxIterations; i++) {
+				double rr0 = r0 * r0, ii0 = i0 * i0;
+				double rr1 = r1 * r1, ii1 = i1 * i1;
+				double rr2 = r2 * r2, ii2 = i2 * i2;
+				double rr3 = r3 * r3, ii3 = i3 * i3;
+
+				a0 &= rr0 + ii0 <= squaredThreshold;
+				a1 &= rr1 + ii1 <= squaredThreshold;
+				a2 &= rr2 + ii2 <= squaredThreshold;
+				a3 &= rr3 + ii3 <= squaredThreshold;
+
+				if (!(a0 | a1 | a2 | a3)) {
+					break;
+				}
+
+				n0 += a0 ? 1 : 0;
+				n1 += a1 ? 1 : 0;
+				n2 += a2 ? 1 : 0;
+				n3 += a3 ? 1 : 0;
+
+				i0 = 2 * r0 * i0 + imaginarySeed;
+				i1 = 2 * r1 * i1 + imaginarySeed;
+				i2 = 2 * r2 * i2 + imaginarySeed;
+				i3 = 2 * r3 * i3 + imaginarySeed;
+				r0 = rr0 - ii0 + realSeed;
+				r1 = rr1 - ii1 + realSeed;
+				r2 = rr2 - ii2 + realSeed;
+				r3 = rr3 - ii3 + realSeed;
+			}
+
+			iterations[offset + x] = n0;
+			iterations[offset + x + 1] = n1;
+			iterations[offset + x + 2] = n2;
+			iterations[offset + x + 3] = n3;
+		}
+
+		// Iterate the pixels that do not fill a whole set of lanes one at a time.
+		for (; x < endX; x++) {
+			double re = x * rangeRe / width + minRe;
+			iterations[offset + x] = iterate(re, im, realSeed, imaginarySeed, maxIterations, squaredThreshold);
+		}
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+import me.oskarmendel.formula.Formula;
+import me.oskarmendel.formula.Kernel;
+import me.oskarmendel.formula.KernelCompiler;
+
+/**
+ * FormulaFractal generates escape time fractals of any {@link Formula}, such
+ * as z^3 + c, the Burning Ship or the Tricorn, without a class of its own for
+ * every formula. The formula is compiled into a {@link Kernel} once and every
+ * pixel is iterated by it.
+ * 
+ * In the Julia plane every pixel is the starting z and the seed is c, like the
+ * Julia Fractal. Otherwise every pixel is both the starting z and c, like the
+ * Mandelbrot set, so z^2 + c gives the same counts as the MandelbrotFractal.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name FormulaFractal.java
+ */
+public class FormulaFractal implements Fractal {
+
+	private static final int DEFAULT_MAX_ITERATIONS = 100;
+	private static final double DEFAULT_ESCAPE_RADIUS = 2;
+	private static final int BAND_ROWS = 4;
+	private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+	private final Formula formula;
+	private final Kernel kernel;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool;
+	private volatile int maxIterations = DEFAULT_MAX_ITERATIONS;
+	private volatile double squaredThreshold = EscapeTime.squaredThreshold(DEFAULT_ESCAPE_RADIUS);
+	private volatile boolean julia = true;
+
+	/**
+	 * Constructs a new FormulaFractal of the specified formula.
+	 * 
+	 * @param formula - The formula to iterate.
+	 */
+	public FormulaFractal(Formula formula) {
+		this(formula, KernelCompiler.compile(formula));
+	}
+
+	/**
+	 * Constructs a new FormulaFractal that iterates the formula with the
+	 * specified kernel.
+	 * 
+	 * @param formula - The formula to iterate.
+	 * @param kernel - Kernel running the formula.
+	 */
+	public FormulaFractal(Formula formula, Kernel kernel) {
+		this.formula = formula;
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Generates a Buffered image of the specified window of the fractal. The
+	 * generation stops between rows once the specified condition reports it
+	 * is cancelled.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return A BufferedImage of the fractal.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public BufferedImage generateFractal(int width, int height, double realSeed, double imaginarySeed,
+			Viewport viewport, BooleanSupplier cancelled) {
+		int[] iterations = new int[width * height];
+
+		generate(width, height, 0, height, realSeed, imaginarySeed, viewport, iterations, cancelled);
+
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] levels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = (byte) Math.min(iterations[i], 255);
+		}
+
+		return img;
+	}
+
+	/**
+	 * Generates the iteration counts of the rows from startY (inclusive) to
+	 * endY (exclusive) of an image of the fractal, see
+	 * {@link JuliaFractal#generateStrip(int, int, int, int, double, double, Viewport, int[])}.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param startY - First row of the strip.
+	 * @param endY - Row after the last row of the strip.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param iterations - Receives the width * (endY - startY) iteration counts.
+	 */
+	public void generateStrip(int width, int height, int startY, int endY, double realSeed, double imaginarySeed,
+			Viewport viewport, int[] iterations) {
+		generate(width, height, startY, endY, realSeed, imaginarySeed, viewport, iterations, NEVER_CANCELLED);
+	}
+
+	/**
+	 * Generates the iteration counts of the rows from startY (inclusive) to
+	 * endY (exclusive), in parallel when more than one thread is used.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param startY - First row to generate.
+	 * @param endY - Row after the last row to generate.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param iterations - Receives the width * (endY - startY) iteration counts.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	private void generate(int width, int height, int startY, int endY, double realSeed, double imaginarySeed,
+			Viewport viewport, int[] iterations, BooleanSupplier cancelled) {
+		Rows rows = new Rows(iterations, width, height, startY, startY, endY, realSeed, imaginarySeed, viewport,
+				maxIterations, squaredThreshold, julia, cancelled);
+		ForkJoinPool pool = getPool();
+
+		if (pool != null) {
+			pool.invoke(rows);
+		} else {
+			rows.compute();
+		}
+	}
+
+	/**
+	 * Returns the formula of the fractal.
+	 * 
+	 * @return The formula of the fractal.
+	 */
+	public Formula getFormula() {
+		return this.formula;
+	}
+
+	/**
+	 * Returns the kernel the formula is iterated with.
+	 * 
+	 * @return The kernel of the formula.
+	 */
+	public Kernel getKernel() {
+		return this.kernel;
+	}
+
+	/**
+	 * Returns the maximum number of iterations for every pixel.
+	 * 
+	 * @return Maximum number of iterations.
+	 */
+	public int getMaxIterations() {
+		return this.maxIterations;
+	}
+
+	/**
+	 * Sets the maximum number of iterations for every pixel.
+	 * 
+	 * @param maxIterations - Maximum number of iterations.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations < 1) {
+			throw new IllegalArgumentException("Maximum iterations must be at least 1: " + maxIterations);
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Sets the magnitude past which an orbit escapes. Two is enough for
+	 * polynomials such as z^n + c, formulas of exp, sin or cos usually need
+	 * a larger radius.
+	 * 
+	 * @param escapeRadius - Magnitude past which an orbit escapes.
+	 */
+	public void setEscapeRadius(double escapeRadius) {
+		if (!(escapeRadius > 0)) {
+			throw new IllegalArgumentException("The escape radius must be positive: " + escapeRadius);
+		}
+		this.squaredThreshold = EscapeTime.squaredThreshold(escapeRadius);
+	}
+
+	/**
+	 * Sets whether the fractal shows the Julia plane of a seed or the plane
+	 * of all values of c.
+	 * 
+	 * @param julia - True to show the Julia plane of the seed.
+	 */
+	public void setJulia(boolean julia) {
+		this.julia = julia;
+	}
+
+	/**
+	 * Returns whether the fractal shows the Julia plane of a seed.
+	 * 
+	 * @return True if the fractal shows the Julia plane of the seed.
+	 */
+	public boolean isJulia() {
+		return this.julia;
+	}
+
+	/**
+	 * Sets the number of threads used to generate the fractal. A value of one
+	 * generates the fractal on the calling thread.
+	 * 
+	 * @param parallelism - Number of threads to generate the fractal with.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+
+		if (this.parallelism != parallelism && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to generate the fractal.
+	 * 
+	 * @return Number of threads used to generate the fractal.
+	 */
+	public synchronized int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Lazily creates the pool that parallel generation runs on.
+	 * 
+	 * @return ForkJoinPool sized to the current parallelism, or null if the
+	 *         fractal is generated on the calling thread.
+	 */
+	synchronized ForkJoinPool getPool() {
+		if (parallelism == 1) {
+			return null;
+		}
+
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Returns the string representation of this class which is the class name
+	 * followed by the formula.
+	 * 
+	 * @return the name of this class and its formula.
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[" + formula + "]";
+	}
+
+	/**
+	 * A band of rows that splits itself in half until it is small enough to
+	 * iterate directly.
+	 */
+	private class Rows extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] iterations;
+		private final int width;
+		private final int height;
+		private final int firstRow;
+		private final int startY;
+		private final int endY;
+		private final double realSeed;
+		private final double imaginarySeed;
+		private final Viewport viewport;
+		private final int maxIterations;
+		private final double squaredThreshold;
+		private final boolean julia;
+		private final BooleanSupplier cancelled;
+
+		Rows(int[] iterations, int width, int height, int firstRow, int startY, int endY, double realSeed,
+				double imaginarySeed, Viewport viewport, int maxIterations, double squaredThreshold, boolean julia,
+				BooleanSupplier cancelled) {
+			this.iterations = iterations;
+			this.width = width;
+			this.height = height;
+			this.firstRow = firstRow;
+			this.startY = startY;
+			this.endY = endY;
+			this.realSeed = realSeed;
+			this.imaginarySeed = imaginarySeed;
+			this.viewport = viewport;
+			this.maxIterations = maxIterations;
+			this.squaredThreshold = squaredThreshold;
+			this.julia = julia;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		protected void compute() {
+			if (endY - startY <= BAND_ROWS) {
+				iterateRows();
+				return;
+			}
+
+			int middle = (startY + endY) >>> 1;
+			Rows first = new Rows(iterations, width, height, firstRow, startY, middle, realSeed, imaginarySeed,
+					viewport, maxIterations, squaredThreshold, julia, cancelled);
+			Rows second = new Rows(iterations, width, height, firstRow, middle, endY, realSeed, imaginarySeed,
+					viewport, maxIterations, squaredThreshold, julia, cancelled);
+
+			// Outside of a pool the fractal is generated on the calling thread.
+			if (inForkJoinPool()) {
+				invokeAll(first, second);
+			} else {
+				first.compute();
+				second.compute();
+			}
+		}
+
+		/**
+		 * Iterates every pixel of the rows of this band. Unrotated rows are
+		 * iterated by the kernel in one call.
+		 */
+		private void iterateRows() {
+			double minRe = viewport.getMinRe();
+			double minIm = viewport.getMinIm();
+			double range = viewport.getRange();
+			boolean rotated = viewport.isRotated();
+
+			for (int y = startY; y < endY; y++) {
+				if (cancelled.getAsBoolean()) {
+					throw new CancellationException();
+				}
+
+				int row = (y - firstRow) * width;
+
+				if (!rotated) {
+					kernel.iterateRow(iterations, row, 0, width, width, minRe, range, y * range / height + minIm,
+							realSeed, imaginarySeed, julia, maxIterations, squaredThreshold);
+					continue;
+				}
+
+				for (int x = 0; x < width; x++) {
+					double a = viewport.toRe(x, y, width, height);
+					double b = viewport.toIm(x, y, width, height);
+
+					if (julia) {
+						iterations[row + x] = kernel.iterate(a, b, realSeed, imaginarySeed, maxIterations,
+								squaredThreshold);
+					} else {
+						iterations[row + x] = kernel.iterate(a, b, a, b, maxIterations, squaredThreshold);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.fractals;
+
+import java.util.Arrays;
+
+/**
+ * IterationHistogram counts how many pixels of a complete frame took every
+ * number of iterations, from zero up to and including the maximum number of
+ * iterations of the frame. Pixels at the maximum never escaped, they either
+ * lie inside the fractal or would need more iterations to escape.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name IterationHistogram.java
+ */
+public final class IterationHistogram {
+
+	private final int maxIterations;
+	private final int[] counts;
+	private final int total;
+
+	/**
+	 * Counts the iteration counts of a frame.
+	 * 
+	 * @param iterations - The iteration counts of the frame.
+	 * @param maxIterations - Maximum number of iterations of the frame.
+	 */
+	IterationHistogram(int[] iterations, int maxIterations) {
+		this.maxIterations = maxIterations;
+		this.counts = new int[maxIterations + 1];
+		this.total = iterations.length;
+
+		for (int i = 0; i < iterations.length; i++) {
+			counts[Math.min(iterations[i], maxIterations)]++;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of iterations the frame was rendered with.
+	 * 
+	 * @return Maximum number of iterations.
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Returns the number of pixels that took the specified number of
+	 * iterations.
+	 * 
+	 * @param iterations - Number of iterations.
+	 * @return Number of pixels, zero outside of the histogram.
+	 */
+	public int getCount(int iterations) {
+		return iterations >= 0 && iterations <= maxIterations ? counts[iterations] : 0;
+	}
+
+	/**
+	 * Returns the number of pixels in the frame.
+	 * 
+	 * @return Number of pixels.
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of iterations the pixels of the frame take together,
+	 * counting the maximum for every unresolved pixel.
+	 * 
+	 * @return Total number of iterations.
+	 */
+	public long getIterations() {
+		long iterations = 0;
+
+		for (int i = 1; i <= maxIterations; i++) {
+			iterations += (long) i * counts[i];
+		}
+		return iterations;
+	}
+
+	/**
+	 * Returns the number of pixels that reached the maximum number of
+	 * iterations without escaping.
+	 * 
+	 * @return Number of unresolved pixels.
+	 */
+	public int getUnresolved() {
+		return counts[maxIterations];
+	}
+
+	/**
+	 * Returns the number of pixels that escaped after at least the specified
+	 * number of iterations.
+	 * 
+	 * @param iterations - Fewest number of iterations to count.
+	 * @return Number of pixels that escaped late.
+	 */
+	public int getEscapedAfter(int iterations) {
+		int escaped = 0;
+
+		for (int i = Math.max(iterations, 0); i < maxIterations; i++) {
+			escaped += counts[i];
+		}
+		return escaped;
+	}
+
+	/**
+	 * Returns the highest number of iterations any escaping pixel took.
+	 * 
+	 * @return Highest escaping iteration count, or -1 if no pixel escaped.
+	 */
+	public int getHighestEscaped() {
+		for (int i = maxIterations - 1; i >= 0; i--) {
+			if (counts[i] > 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "IterationHistogram [maxIterations=" + maxIterations + ", total=" + total + ", unresolved="
+				+ getUnresolved() + ", counts=" + Arrays.toString(counts) + "]";
+	}
+}
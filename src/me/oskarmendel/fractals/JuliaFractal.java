@@ -25,15 +25,24 @@
 package me.oskarmendel.fractals;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
-
-import me.oskarmendel.util.ComplexNumber;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * JuliaFractal is used to draw a BufferedImage of a Julia Fractal. 
  * This fractal is drawn using the function: 
  * z^2 - c where z = (x + yi). (x + yi)^2 = x^2 + 2xyi - y^2 
  * 
+ * Every Julia set is symmetric under z -> -z, so when a frame shows the
+ * origin on a pixel or halfway between two pixels only one half of the part
+ * of the frame around the origin is iterated and the other half is copied
+ * from it rotated by 180 degrees.
+ * 
  * More information is available at:
  * https://en.wikipedia.org/wiki/Julia_set
  * 
@@ -43,10 +52,27 @@ import me.oskarmendel.util.ComplexNumber;
  */
 public class JuliaFractal implements Fractal{
 
-	private static final double MAX_RANGE = 1;
-	private static final double MIN_RANGE = -1;
 	private static final int THRESHOLD = 2;
-	private static final int MAX_ITERATIONS = 100;
+	private static final int DEFAULT_MAX_ITERATIONS = 100;
+	private static final int MIN_ADAPTIVE_ITERATIONS = 16;
+	private static final int MAX_ADAPTIVE_ITERATIONS = 4096;
+	private static final double UNRESOLVED_FRACTION = 1e-3;
+	private static final int BAND_ROWS = 4;
+	private static final int COARSEST_STEP = 8;
+	private static final double SQUARED_THRESHOLD = EscapeTime.squaredThreshold(THRESHOLD);
+	private static final double PERIODICITY_TOLERANCE = 1e-24;
+	private static final int MIN_RECTANGLE = 16;
+	private static final double SYMMETRY_TOLERANCE = 1e-3;
+	private static final boolean LANE_KERNEL = !"scalar".equals(System.getProperty("fractalfx.kernel"));
+	private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool;
+	private volatile boolean periodicityChecking = false;
+	private volatile boolean rectangleSubdivision = false;
+	private volatile int maxIterations = DEFAULT_MAX_ITERATIONS;
+	private volatile boolean adaptiveIterations = false;
+	private volatile boolean symmetry = true;
 
 	/**
 	 * Generates a Buffered image of a Julia Fractal.
@@ -58,52 +84,800 @@ public class JuliaFractal implements Fractal{
 	 * @return A BufferedImage of a Julia Fractal.
 	 */
 	public BufferedImage generateFractal(int width, int height, double realSeed, double imaginarySeed) {
-		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-		WritableRaster wr = (WritableRaster) img.getData();
+		return generateFractal(width, height, realSeed, imaginarySeed, NEVER_CANCELLED);
+	}
+
+	/**
+	 * Generates a Buffered image of a Julia Fractal. The generation stops
+	 * between rows once the specified condition reports it is cancelled.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return A BufferedImage of a Julia Fractal.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public BufferedImage generateFractal(int width, int height, double realSeed, double imaginarySeed,
+			BooleanSupplier cancelled) {
+		return generateFractal(width, height, realSeed, imaginarySeed, Viewport.DEFAULT, cancelled);
+	}
+
+	/**
+	 * Generates a Buffered image of the specified window of a Julia Fractal.
+	 * The generation stops between rows once the specified condition reports
+	 * it is cancelled.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return A BufferedImage of a Julia Fractal.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public BufferedImage generateFractal(int width, int height, double realSeed, double imaginarySeed,
+			Viewport viewport, BooleanSupplier cancelled) {
+		Frame frame = new Frame(new int[width * height], width, height, realSeed, imaginarySeed, viewport,
+				maxIterations, cancelled);
 
-		int x = 0; // X coordinate on the image;
-		int y = 0; // Y coordinate on the image.
-		int i; // Number of iterations.
+		generate(frame, 1, false);
+		completeFrame(frame.iterations, frame.maxIterations);
 
-		// Looping through each pixel making a complex number for each pixel.
-		for (y = 0; y < height; y++) {
-			for (x = 0; x < width; x++) {
-				// Transforming the coordinates so it lies between the range -1
-				// to 1.
-				double a = x * (MAX_RANGE - MIN_RANGE) / width + MIN_RANGE;
-				double b = y * (MAX_RANGE - MIN_RANGE) / height + MIN_RANGE;
+		return toImage(frame.iterations, width, height);
+	}
 
-				ComplexNumber c = new ComplexNumber(a, b);
+	/**
+	 * Generates a Julia Fractal in passes from coarse to fine. The first pass
+	 * iterates every eighth pixel in both directions and fills the block below
+	 * and to the right of each sample with its value. Every following pass
+	 * halves the step and only iterates the pixels the earlier passes have not,
+	 * until the last pass completes the full resolution image.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param passListener - Receives the image of every pass as soon as it is done.
+	 * @return A BufferedImage of a Julia Fractal.
+	 */
+	public BufferedImage generateProgressive(int width, int height, double realSeed, double imaginarySeed,
+			Consumer<BufferedImage> passListener) {
+		return generateProgressive(width, height, realSeed, imaginarySeed, passListener, NEVER_CANCELLED);
+	}
 
-				for (i = 0; i < MAX_ITERATIONS && c.getAbs() <= THRESHOLD; i++) {
-					// Apply function for Julia Fractal
-					applyFunction(c, realSeed, imaginarySeed);
+	/**
+	 * Generates a Julia Fractal in passes from coarse to fine, see
+	 * {@link #generateProgressive(int, int, double, double, Consumer)}. The
+	 * generation stops between rows once the specified condition reports it is
+	 * cancelled.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param passListener - Receives the image of every pass as soon as it is done.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return A BufferedImage of a Julia Fractal.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public BufferedImage generateProgressive(int width, int height, double realSeed, double imaginarySeed,
+			Consumer<BufferedImage> passListener, BooleanSupplier cancelled) {
+		Frame frame = new Frame(new int[width * height], width, height, realSeed, imaginarySeed,
+				Viewport.DEFAULT, maxIterations, cancelled);
+		int[] iterations = frame.iterations;
+		int[] preview = new int[width * height];
+
+		for (int step = COARSEST_STEP; step > 1; step >>= 1) {
+			generate(frame, step, step < COARSEST_STEP);
+
+			// Fill each block with the sample in its top left corner.
+			for (int y = 0; y < height; y++) {
+				int sampleRow = (y - y % step) * width;
+				int row = y * width;
+
+				for (int x = 0; x < width; x++) {
+					preview[row + x] = iterations[sampleRow + x - x % step];
 				}
+			}
+
+			passListener.accept(toImage(preview, width, height));
+		}
+
+		generate(frame, 1, true);
+		completeFrame(iterations, frame.maxIterations);
+
+		BufferedImage img = toImage(iterations, width, height);
+		passListener.accept(img);
+
+		return img;
+	}
+
+	/**
+	 * Generates the iteration counts of the rows from startY (inclusive) to
+	 * endY (exclusive) of a Julia Fractal image, so images too large to hold
+	 * in memory can be generated one strip at a time. Strips are generated
+	 * with the maximum number of iterations of the fractal, which does not
+	 * adapt between strips.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param startY - First row of the strip.
+	 * @param endY - Row after the last row of the strip.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param iterations - Receives the width * (endY - startY) iteration counts.
+	 */
+	public void generateStrip(int width, int height, int startY, int endY, double realSeed, double imaginarySeed,
+			Viewport viewport, int[] iterations) {
+		generateTile(width, height, 0, startY, width, endY, realSeed, imaginarySeed, viewport, iterations);
+	}
+
+	/**
+	 * Generates the iteration counts of the rectangle from x0, y0 (inclusive)
+	 * to x1, y1 (exclusive) of a Julia Fractal image, so an image can be split
+	 * into tiles generated separately. Tiles are generated with the maximum
+	 * number of iterations of the fractal, which does not adapt between tiles.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param x0 - Left edge of the tile.
+	 * @param y0 - Top edge of the tile.
+	 * @param x1 - Right edge of the tile.
+	 * @param y1 - Bottom edge of the tile.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param iterations - Receives the (x1 - x0) * (y1 - y0) iteration counts,
+	 *            row after row.
+	 */
+	public void generateTile(int width, int height, int x0, int y0, int x1, int y1, double realSeed,
+			double imaginarySeed, Viewport viewport, int[] iterations) {
+		Frame frame = new Frame(iterations, x0, y0, x1 - x0, width, height, realSeed, imaginarySeed, viewport,
+				maxIterations, NEVER_CANCELLED);
+
+		generate(frame, x0, y0, x1, y1, 1, false);
+	}
+
+	/**
+	 * Returns the maximum number of iterations of every pixel in the next
+	 * frame.
+	 * 
+	 * @return Maximum number of iterations.
+	 */
+	public int getMaxIterations() {
+		return this.maxIterations;
+	}
+
+	/**
+	 * Sets the maximum number of iterations of every pixel in the next frame.
+	 * 
+	 * @param maxIterations - Maximum number of iterations.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations < 1) {
+			throw new IllegalArgumentException("Maximum iterations must be at least 1: " + maxIterations);
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Sets whether the maximum number of iterations adapts to every frame.
+	 * The maximum is doubled for the next frame while more than a thousandth
+	 * of the pixels only escape in the last quarter of the iterations, those
+	 * pixels show that the edge of the fractal is not resolved yet. When no
+	 * pixel needs more than half the iterations the maximum is lowered to
+	 * twice the most any pixel needed.
+	 * 
+	 * @param adaptiveIterations - True to adapt the maximum to every frame.
+	 */
+	public void setAdaptiveIterations(boolean adaptiveIterations) {
+		this.adaptiveIterations = adaptiveIterations;
+	}
+
+	/**
+	 * Returns whether the maximum number of iterations adapts to every frame.
+	 * 
+	 * @return True if the maximum adapts to every frame.
+	 */
+	public boolean isAdaptiveIterations() {
+		return this.adaptiveIterations;
+	}
+
+	/**
+	 * Sets the number of threads used to generate the fractal. A value of one
+	 * generates the fractal on the calling thread.
+	 * 
+	 * @param parallelism - Number of threads to generate the fractal with.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+
+		if (this.parallelism != parallelism && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to generate the fractal.
+	 * 
+	 * @return Number of threads used to generate the fractal.
+	 */
+	public synchronized int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Sets whether pixels should stop iterating once their orbit is found to
+	 * be periodic. Periodic orbits never escape so the generated image is the
+	 * same, but interior pixels no longer run all iterations.
+	 * 
+	 * @param periodicityChecking - True to check orbits for cycles.
+	 */
+	public void setPeriodicityChecking(boolean periodicityChecking) {
+		this.periodicityChecking = periodicityChecking;
+	}
+
+	/**
+	 * Returns whether pixels stop iterating once their orbit is periodic.
+	 * 
+	 * @return True if orbits are checked for cycles.
+	 */
+	public boolean isPeriodicityChecking() {
+		return this.periodicityChecking;
+	}
+
+	/**
+	 * Sets whether full resolution images are generated by rectangle
+	 * subdivision, also known as the Mariani-Silver algorithm. Only the border
+	 * of a rectangle is iterated, and if the whole border has the same count
+	 * the inside is filled with it. Otherwise the rectangle is split in four
+	 * and each part is tried again. Rectangles smaller than 16 pixels across
+	 * are always iterated in full, so only details thinner than that which do
+	 * not reach the border of a larger rectangle can be missed.
+	 * 
+	 * @param rectangleSubdivision - True to generate images by subdivision.
+	 */
+	public void setRectangleSubdivision(boolean rectangleSubdivision) {
+		this.rectangleSubdivision = rectangleSubdivision;
+	}
+
+	/**
+	 * Returns whether full resolution images are generated by rectangle
+	 * subdivision.
+	 * 
+	 * @return True if images are generated by subdivision.
+	 */
+	public boolean isRectangleSubdivision() {
+		return this.rectangleSubdivision;
+	}
+
+	/**
+	 * Sets whether the part of a full resolution frame that is point
+	 * symmetric about the origin is only iterated on one side of the origin
+	 * and copied rotated by 180 degrees to the other. A frame is symmetric
+	 * when the origin lies on a pixel, or halfway between two pixels, in both
+	 * directions. Pixels on the edge of the fractal may differ from iterating
+	 * them by the rounding of their coordinates.
+	 * 
+	 * @param symmetry - True to copy the symmetric half of frames.
+	 */
+	public void setSymmetry(boolean symmetry) {
+		this.symmetry = symmetry;
+	}
+
+	/**
+	 * Returns whether the symmetric half of frames is copied instead of
+	 * iterated.
+	 * 
+	 * @return True if the symmetric half of frames is copied.
+	 */
+	public boolean isSymmetry() {
+		return this.symmetry;
+	}
+
+	/**
+	 * Lazily creates the pool that parallel generation runs on.
+	 * 
+	 * @return ForkJoinPool sized to the current parallelism, or null if the
+	 *         fractal is generated on the calling thread.
+	 */
+	synchronized ForkJoinPool getPool() {
+		if (parallelism == 1) {
+			return null;
+		}
 
-				wr.setSample(x, y, 0, i);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Counts the iteration counts of a complete frame and, when the maximum
+	 * number of iterations is adaptive, picks the maximum of the next frame
+	 * from them.
+	 * 
+	 * @param iterations - The iteration counts of the frame.
+	 * @param maxIterations - Maximum number of iterations of the frame.
+	 * @return Histogram of the iteration counts.
+	 */
+	IterationHistogram completeFrame(int[] iterations, int maxIterations) {
+		IterationHistogram histogram = new IterationHistogram(iterations, maxIterations);
+
+		if (adaptiveIterations) {
+			int highest = histogram.getHighestEscaped();
+
+			if (histogram.getEscapedAfter(maxIterations - maxIterations / 4) > UNRESOLVED_FRACTION
+					* histogram.getTotal()) {
+				this.maxIterations = Math.min(MAX_ADAPTIVE_ITERATIONS, Math.max(maxIterations * 2,
+						MIN_ADAPTIVE_ITERATIONS));
+			} else if (highest < maxIterations / 2) {
+				this.maxIterations = Math.max(MIN_ADAPTIVE_ITERATIONS, highest * 2);
 			}
 		}
+		return histogram;
+	}
+
+	/**
+	 * Generates the iteration counts of every step'th pixel in both directions,
+	 * in parallel when more than one thread is used.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @param step - Distance between the pixels to generate.
+	 * @param reuse - True to skip the pixels already generated with twice the step.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	void generate(Frame frame, int step, boolean reuse) {
+		generate(frame, 0, 0, frame.width, frame.height, step, reuse);
+	}
+
+	/**
+	 * Generates the iteration counts of every pixel in the rectangle from x0, y0
+	 * (inclusive) to x1, y1 (exclusive), in parallel when more than one thread
+	 * is used.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @param x0 - Left edge of the rectangle.
+	 * @param y0 - Top edge of the rectangle.
+	 * @param x1 - Right edge of the rectangle.
+	 * @param y1 - Bottom edge of the rectangle.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	void generateRegion(Frame frame, int x0, int y0, int x1, int y1) {
+		if (x0 < x1 && y0 < y1) {
+			generate(frame, x0, y0, x1, y1, 1, false);
+		}
+	}
+
+	/**
+	 * Generates the iteration counts of every step'th pixel in both directions
+	 * within a rectangle of the frame. At full resolution the part of the
+	 * rectangle that is point symmetric about the origin is only generated
+	 * down to the row of the origin, the rows below it are copied from the
+	 * rows above rotated by 180 degrees.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @param x0 - Left edge of the rectangle.
+	 * @param y0 - Top edge of the rectangle.
+	 * @param x1 - Right edge of the rectangle.
+	 * @param y1 - Bottom edge of the rectangle.
+	 * @param step - Distance between the pixels to generate.
+	 * @param reuse - True to skip the pixels already generated with twice the step.
+	 */
+	private void generate(Frame frame, int x0, int y0, int x1, int y1, int step, boolean reuse) {
+		long[] origin = step == 1 && symmetry ? symmetryCenter(frame) : null;
+
+		if (origin == null) {
+			generateRectangle(frame, x0, y0, x1, y1, step, reuse);
+			return;
+		}
+
+		// Pixel x, y shows the point opposite of pixel centerX - x, centerY - y.
+		long centerX = origin[0];
+		long centerY = origin[1];
+		long symmetricX0 = Math.max(x0, centerX - x1 + 1);
+		long symmetricX1 = Math.min(x1, centerX - x0 + 1);
+		long symmetricY0 = Math.max(y0, centerY - y1 + 1);
+		long symmetricY1 = Math.min(y1, centerY - y0 + 1);
+
+		if (symmetricX0 >= symmetricX1 || symmetricY0 >= symmetricY1) {
+			generateRectangle(frame, x0, y0, x1, y1, step, reuse);
+			return;
+		}
+
+		int sx0 = (int) symmetricX0;
+		int sy0 = (int) symmetricY0;
+		int sx1 = (int) symmetricX1;
+		int sy1 = (int) symmetricY1;
+		int half = (int) Math.min(Math.floorDiv(centerY, 2) + 1, sy1);
+
+		// The rest of the rectangle has no symmetric counterpart within it.
+		generateRectangle(frame, x0, y0, x1, sy0, step, reuse);
+		generateRectangle(frame, x0, sy1, x1, y1, step, reuse);
+		generateRectangle(frame, x0, sy0, sx0, sy1, step, reuse);
+		generateRectangle(frame, sx1, sy0, x1, sy1, step, reuse);
+		generateRectangle(frame, sx0, sy0, sx1, half, step, reuse);
+
+		int[] iterations = frame.iterations;
+		int mirrorX = (int) centerX;
 
-		// Set the content of raster to image.
-		img.setData(wr);
+		for (int y = half; y < sy1; y++) {
+			int row = frame.row(y);
+			int mirrorRow = frame.row((int) (centerY - y)) + mirrorX;
+
+			for (int x = sx0; x < sx1; x++) {
+				iterations[row + x] = iterations[mirrorRow - x];
+			}
+		}
+	}
+
+	/**
+	 * Returns the pixel position of the origin doubled, which is where every
+	 * pixel and its point symmetric pixel add up to, when the frame shows the
+	 * origin on a pixel or halfway between two pixels in both directions.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @return The x and y coordinates pixels add up to, or null if the frame
+	 *         is not point symmetric.
+	 */
+	private static long[] symmetryCenter(Frame frame) {
+		double centerX = -2 * frame.viewport.originX(frame.width);
+		double centerY = -2 * frame.viewport.originY(frame.height);
+
+		if (Math.abs(centerX) > Integer.MAX_VALUE || Math.abs(centerY) > Integer.MAX_VALUE
+				|| Math.abs(centerX - Math.rint(centerX)) > SYMMETRY_TOLERANCE
+				|| Math.abs(centerY - Math.rint(centerY)) > SYMMETRY_TOLERANCE) {
+			return null;
+		}
+		return new long[] { (long) Math.rint(centerX), (long) Math.rint(centerY) };
+	}
+
+	/**
+	 * Generates the iteration counts of every step'th pixel in both directions
+	 * within a rectangle of the frame, in parallel when more than one thread
+	 * is used. Full resolution rectangles are subdivided when rectangle
+	 * subdivision is on.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @param x0 - Left edge of the rectangle.
+	 * @param y0 - Top edge of the rectangle.
+	 * @param x1 - Right edge of the rectangle.
+	 * @param y1 - Bottom edge of the rectangle.
+	 * @param step - Distance between the pixels to generate.
+	 * @param reuse - True to skip the pixels already generated with twice the step.
+	 */
+	private void generateRectangle(Frame frame, int x0, int y0, int x1, int y1, int step, boolean reuse) {
+		if (x0 >= x1 || y0 >= y1) {
+			return;
+		}
+
+		ForkJoinPool pool = getPool();
+
+		if (rectangleSubdivision && step == 1 && !reuse) {
+			// The border of the whole rectangle is iterated before subdividing.
+			generateRows(frame, x0, y0, x1, y0 + 1, 1, false);
+			generateRows(frame, x0, y1 - 1, x1, y1, 1, false);
+			generateColumn(frame, x0, y0 + 1, y1 - 1);
+			generateColumn(frame, x1 - 1, y0 + 1, y1 - 1);
+
+			Subdivision subdivision = new Subdivision(frame, x0, y0, x1 - 1, y1 - 1);
+
+			if (pool != null) {
+				pool.invoke(subdivision);
+			} else {
+				subdivision.compute();
+			}
+		} else if (pool != null) {
+			pool.invoke(new RowBand(frame, x0, y0, x1, y1, step, reuse));
+		} else {
+			generateRows(frame, x0, y0, x1, y1, step, reuse);
+		}
+	}
+
+	/**
+	 * Creates a gray scale image with one iteration count per pixel. Counts
+	 * above the brightest gray level are shown as white.
+	 * 
+	 * @param iterations - Array of width * height iteration counts.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return A BufferedImage of the iteration counts.
+	 */
+	private BufferedImage toImage(int[] iterations, int width, int height) {
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] levels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = (byte) Math.min(iterations[i], 255);
+		}
 
 		return img;
 	}
 
 	/**
-	 * The function: z^2 - c, to apply on each pixel.
+	 * Generates the iteration count of every step'th pixel in both directions
+	 * in the rectangle from startX, startY (inclusive) to endX, endY
+	 * (exclusive). Rows of an unrotated viewport are iterated four pixels at a
+	 * time unless the system property fractalfx.kernel is set to scalar.
 	 * 
-	 * @param cn - Target complex number.
-	 * @param realSeed - The seed for the real number.
-	 * @param ImaginarySeed - The seed for the imaginary number.
+	 * @param frame - The frame to generate.
+	 * @param startX - Left edge of the rectangle.
+	 * @param startY - First row to generate.
+	 * @param endX - Right edge of the rectangle.
+	 * @param endY - Row after the last row to generate.
+	 * @param step - Distance between the pixels to generate.
+	 * @param reuse - True to skip the pixels already generated with twice the step.
+	 * @throws CancellationException if the frame was cancelled.
 	 */
-	private void applyFunction(ComplexNumber cn, double realSeed, double imaginarySeed) {
-		double re = cn.getReal() * cn.getReal() - cn.getImaginary() * cn.getImaginary() + realSeed;
-		double im = 2 * cn.getReal() * cn.getImaginary() + imaginarySeed;
-		cn.setReal(re);
-		cn.setImaginary(im);
+	private void generateRows(Frame frame, int startX, int startY, int endX, int endY, int step, boolean reuse) {
+		int[] iterations = frame.iterations;
+		int width = frame.width;
+		int height = frame.height;
+		double realSeed = frame.realSeed;
+		double imaginarySeed = frame.imaginarySeed;
+		Viewport viewport = frame.viewport;
+		double minRe = viewport.getMinRe();
+		double minIm = viewport.getMinIm();
+		double range = viewport.getRange();
+		boolean rotated = viewport.isRotated();
+		int maxIterations = frame.maxIterations;
+		boolean periodic = periodicityChecking;
+		int firstX = (startX + step - 1) / step * step;
+		int firstY = (startY + step - 1) / step * step;
+
+		// Looping through each pixel iterating the complex number for each pixel.
+		for (int y = firstY; y < endY; y += step) {
+			if (frame.cancelled.getAsBoolean()) {
+				throw new CancellationException();
+			}
+
+			// Transforming the coordinates so it lies within the viewport.
+			double b = y * range / height + minIm;
+			int row = frame.row(y);
+
+			// Rows generated by the previous pass only miss every other pixel.
+			boolean sampledRow = reuse && y % (2 * step) == 0;
+
+			if (LANE_KERNEL && !periodic && !rotated && step == 1 && !sampledRow) {
+				EscapeTime.iterateRow(iterations, row, startX, endX, width, minRe, range, b, realSeed,
+						imaginarySeed, maxIterations, SQUARED_THRESHOLD);
+				continue;
+			}
+
+			for (int x = firstX; x < endX; x += step) {
+				if (sampledRow && x % (2 * step) == 0) {
+					continue;
+				}
+
+				double a = x * range / width + minRe;
+				double c = b;
+
+				if (rotated) {
+					a = viewport.toRe(x, y, width, height);
+					c = viewport.toIm(x, y, width, height);
+				}
+
+				if (periodic) {
+					iterations[row + x] = EscapeTime.iteratePeriodic(a, c, realSeed, imaginarySeed, maxIterations,
+							SQUARED_THRESHOLD, PERIODICITY_TOLERANCE);
+				} else {
+					iterations[row + x] = EscapeTime.iterate(a, c, realSeed, imaginarySeed, maxIterations,
+							SQUARED_THRESHOLD);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generates the iteration count of every pixel in part of a column.
+	 * 
+	 * @param frame - The frame to generate.
+	 * @param x - The column to generate.
+	 * @param startY - First row to generate.
+	 * @param endY - Row after the last row to generate.
+	 */
+	private void generateColumn(Frame frame, int x, int startY, int endY) {
+		for (int y = startY; y < endY; y++) {
+			generateRows(frame, x, y, x + 1, y + 1, 1, false);
+		}
+	}
+
+	/**
+	 * The iteration counts and parameters of a single frame being generated.
+	 * The iteration counts may only hold a rectangle of the frame starting at
+	 * firstColumn, firstRow with rows of stride counts, when a large image is
+	 * generated one strip or tile at a time. The rectangle may reach past the
+	 * edges of the image, to negative coordinates, for tiles around it.
+	 */
+	static final class Frame {
+
+		final int[] iterations;
+		final int firstColumn;
+		final int firstRow;
+		final int stride;
+		final int width;
+		final int height;
+		final double realSeed;
+		final double imaginarySeed;
+		final Viewport viewport;
+		final int maxIterations;
+		final BooleanSupplier cancelled;
+
+		Frame(int[] iterations, int width, int height, double realSeed, double imaginarySeed, Viewport viewport,
+				int maxIterations, BooleanSupplier cancelled) {
+			this(iterations, 0, 0, width, width, height, realSeed, imaginarySeed, viewport, maxIterations, cancelled);
+		}
+
+		Frame(int[] iterations, int firstColumn, int firstRow, int stride, int width, int height, double realSeed,
+				double imaginarySeed, Viewport viewport, int maxIterations, BooleanSupplier cancelled) {
+			this.iterations = iterations;
+			this.firstColumn = firstColumn;
+			this.firstRow = firstRow;
+			this.stride = stride;
+			this.width = width;
+			this.height = height;
+			this.realSeed = realSeed;
+			this.imaginarySeed = imaginarySeed;
+			this.viewport = viewport;
+			this.maxIterations = maxIterations;
+			this.cancelled = cancelled;
+		}
+
+		/**
+		 * Returns the index that column x of a row is offset from in the
+		 * iteration counts, so pixel x, y is at row(y) + x.
+		 * 
+		 * @param y - Row of the frame.
+		 * @return Index of the pixel at the start of the row.
+		 */
+		int row(int y) {
+			return (y - firstRow) * stride - firstColumn;
+		}
+	}
+
+	/**
+	 * A band of rows that splits itself in half until it is small enough to
+	 * generate directly. Idle threads steal the forked halves so bands heavy
+	 * with interior pixels are shared between threads.
+	 */
+	private class RowBand extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Frame frame;
+		private final int startX;
+		private final int startY;
+		private final int endX;
+		private final int endY;
+		private final int step;
+		private final boolean reuse;
+
+		RowBand(Frame frame, int startX, int startY, int endX, int endY, int step, boolean reuse) {
+			this.frame = frame;
+			this.startX = startX;
+			this.startY = startY;
+			this.endX = endX;
+			this.endY = endY;
+			this.step = step;
+			this.reuse = reuse;
+		}
+
+		@Override
+		protected void compute() {
+			if (endY - startY <= BAND_ROWS * step) {
+				generateRows(frame, startX, startY, endX, endY, step, reuse);
+				return;
+			}
+
+			int middle = (startY + endY) >>> 1;
+			invokeAll(new RowBand(frame, startX, startY, endX, middle, step, reuse),
+					new RowBand(frame, startX, middle, endX, endY, step, reuse));
+		}
 	}
-	
+
+	/**
+	 * A rectangle from x0, y0 to x1, y1 (both inclusive) whose border is
+	 * already generated. If every pixel of the border has the same count the
+	 * inside of the rectangle is filled with it, otherwise the rectangle
+	 * generates the lines that split it in four and forks the four parts.
+	 */
+	private class Subdivision extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Frame frame;
+		private final int x0;
+		private final int y0;
+		private final int x1;
+		private final int y1;
+
+		Subdivision(Frame frame, int x0, int y0, int x1, int y1) {
+			this.frame = frame;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+		}
+
+		@Override
+		protected void compute() {
+			if (x1 - x0 < 2 || y1 - y0 < 2) {
+				return;
+			}
+
+			if (frame.cancelled.getAsBoolean()) {
+				throw new CancellationException();
+			}
+
+			if (x1 - x0 < MIN_RECTANGLE || y1 - y0 < MIN_RECTANGLE) {
+				generateRows(frame, x0 + 1, y0 + 1, x1, y1, 1, false);
+				return;
+			}
+
+			int[] iterations = frame.iterations;
+			int count = iterations[frame.row(y0) + x0];
+
+			if (isBorder(iterations, count)) {
+				for (int y = y0 + 1; y < y1; y++) {
+					Arrays.fill(iterations, frame.row(y) + x0 + 1, frame.row(y) + x1, count);
+				}
+				return;
+			}
+
+			// Rectangles of tiles around the image may have negative coordinates.
+			int middleX = (x0 + x1) >> 1;
+			int middleY = (y0 + y1) >> 1;
+
+			generateRows(frame, x0 + 1, middleY, x1, middleY + 1, 1, false);
+			generateColumn(frame, middleX, y0 + 1, middleY);
+			generateColumn(frame, middleX, middleY + 1, y1);
+
+			Subdivision[] parts = { new Subdivision(frame, x0, y0, middleX, middleY),
+					new Subdivision(frame, middleX, y0, x1, middleY), new Subdivision(frame, x0, middleY, middleX, y1),
+					new Subdivision(frame, middleX, middleY, x1, y1) };
+
+			// Outside of a pool the fractal is generated on the calling thread.
+			if (inForkJoinPool()) {
+				invokeAll(parts);
+			} else {
+				for (Subdivision part : parts) {
+					part.compute();
+				}
+			}
+		}
+
+		/**
+		 * Checks whether every pixel on the border of the rectangle has the
+		 * specified count.
+		 * 
+		 * @param iterations - The iteration counts of the frame.
+		 * @param count - The count to compare with.
+		 * @return True if the whole border has the count.
+		 */
+		private boolean isBorder(int[] iterations, int count) {
+			for (int x = x0; x <= x1; x++) {
+				if (iterations[frame.row(y0) + x] != count || iterations[frame.row(y1) + x] != count) {
+					return false;
+				}
+			}
+
+			for (int y = y0 + 1; y < y1; y++) {
+				if (iterations[frame.row(y) + x0] != count || iterations[frame.row(y) + x1] != count) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 	/**
 	 * Returns the string representation of this class which is the class name itself.
 	 * Because this fractal either draws to a canvas or generates an image this is the string
@@ -0,0 +1,424 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.fractals;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * MandelbrotFractal generates images of the Mandelbrot set, the points c for
+ * which the orbit of z = z^2 + c starting at z = c stays bounded. Every pixel
+ * is iterated with the escape time loop of the Julia Fractal using the pixel
+ * itself as the seed, so the Mandelbrot set shows which seeds give connected
+ * Julia Fractals.
+ * 
+ * Two shortcuts skip most of the work of the overview. Points inside the main
+ * cardioid or the period 2 bulb never escape and are recognized by closed
+ * formulas without iterating them. The set is also symmetric across the real
+ * axis, so when the viewport shows both sides of it only the rows on one side
+ * are iterated and mirrored onto the other. A row is only mirrored if it lies
+ * at exactly the negated imaginary part of its mirror image, so mirrored rows
+ * equal iterated ones.
+ * 
+ * More information is available at:
+ * https://en.wikipedia.org/wiki/Plotting_algorithms_for_the_Mandelbrot_set#Cardioid_/_bulb_checking
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name MandelbrotFractal.java
+ */
+public class MandelbrotFractal implements Fractal {
+
+	/**
+	 * Viewport showing the whole Mandelbrot set.
+	 */
+	public static final Viewport DEFAULT_VIEWPORT = new Viewport(-0.5, 0, 1.5, 0);
+
+	private static final int THRESHOLD = 2;
+	private static final int DEFAULT_MAX_ITERATIONS = 100;
+	private static final int BAND_ROWS = 4;
+	private static final double SQUARED_THRESHOLD = EscapeTime.squaredThreshold(THRESHOLD);
+	private static final double MIRROR_TOLERANCE = 1e-3;
+	private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool;
+	private volatile int maxIterations = DEFAULT_MAX_ITERATIONS;
+	private volatile boolean interiorChecking = true;
+	private volatile boolean mirroring = true;
+
+	/**
+	 * Generates a Buffered image of the whole Mandelbrot set.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return A BufferedImage of the Mandelbrot set.
+	 */
+	public BufferedImage generateFractal(int width, int height) {
+		return generateFractal(width, height, DEFAULT_VIEWPORT, NEVER_CANCELLED);
+	}
+
+	/**
+	 * Generates a Buffered image of the specified window of the Mandelbrot
+	 * set. The generation stops between rows once the specified condition
+	 * reports it is cancelled.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return A BufferedImage of the Mandelbrot set.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public BufferedImage generateFractal(int width, int height, Viewport viewport, BooleanSupplier cancelled) {
+		int[] iterations = new int[width * height];
+
+		generate(width, height, viewport, iterations, cancelled);
+
+		BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		byte[] levels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = (byte) Math.min(iterations[i], 255);
+		}
+
+		return img;
+	}
+
+	/**
+	 * Generates the iteration count of every pixel of the specified window of
+	 * the Mandelbrot set, in parallel when more than one thread is used.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param viewport - The window of the complex plane to generate.
+	 * @param iterations - Array of width * height iteration counts to fill.
+	 * @param cancelled - Returns true once the image is no longer wanted.
+	 * @return Histogram of the iteration counts.
+	 * @throws CancellationException if the generation was cancelled.
+	 */
+	public IterationHistogram generate(int width, int height, Viewport viewport, int[] iterations,
+			BooleanSupplier cancelled) {
+		int maxIterations = this.maxIterations;
+		int mirror = mirroring ? mirrorRow(viewport, width, height) : -1;
+		Rows rows = new Rows(iterations, width, height, 0, height, viewport, mirror, maxIterations, cancelled);
+		ForkJoinPool pool = getPool();
+
+		if (pool != null) {
+			pool.invoke(rows);
+		} else {
+			rows.compute();
+		}
+
+		// The rows skipped above are mirror images of rows that were iterated.
+		for (int y = 0; y < height; y++) {
+			if (isMirrored(viewport, height, mirror, y)) {
+				System.arraycopy(iterations, (mirror - y) * width, iterations, y * width, width);
+			}
+		}
+
+		return new IterationHistogram(iterations, maxIterations);
+	}
+
+	/**
+	 * Returns the row that the real axis mirrors row zero onto, so row y is
+	 * the mirror image of row mirror - y. Only unrotated viewports that show
+	 * the real axis halfway between two rows or on a row are mirrored.
+	 * 
+	 * @param viewport - The window of the complex plane.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The mirror row, or -1 if the rows can not be mirrored.
+	 */
+	private static int mirrorRow(Viewport viewport, int width, int height) {
+		if (viewport.isRotated()) {
+			return -1;
+		}
+
+		// Row y lies at y * range / height + minIm, the real axis at row axis.
+		double axis = -viewport.getMinIm() * height / viewport.getRange();
+		double mirror = 2 * axis;
+
+		if (axis <= 0 || axis >= height - 1 || Math.abs(mirror - Math.rint(mirror)) > MIRROR_TOLERANCE) {
+			return -1;
+		}
+		return (int) Math.rint(mirror);
+	}
+
+	/**
+	 * Returns whether a row is the mirror image of a row above it, which lies
+	 * at exactly the negated imaginary part, rounding included.
+	 * 
+	 * @param viewport - The window of the complex plane.
+	 * @param height - Height of the image.
+	 * @param mirror - The mirror row, or -1 if the rows are not mirrored.
+	 * @param y - The row.
+	 * @return True if the row is copied from row mirror - y.
+	 */
+	private static boolean isMirrored(Viewport viewport, int height, int mirror, int y) {
+		if (mirror < 0 || y <= mirror / 2 || y > mirror) {
+			return false;
+		}
+
+		double range = viewport.getRange();
+		double minIm = viewport.getMinIm();
+		return y * range / height + minIm == -((mirror - y) * range / height + minIm);
+	}
+
+	/**
+	 * Checks whether a point lies inside the main cardioid or the period 2
+	 * bulb of the Mandelbrot set, where the orbit never escapes.
+	 * 
+	 * @param re - Real part of the point.
+	 * @param im - Imaginary part of the point.
+	 * @return True if the point is inside the cardioid or the bulb.
+	 */
+	static boolean isInterior(double re, double im) {
+		double im2 = im * im;
+		double x = re - 0.25;
+		double q = x * x + im2;
+
+		if (q * (q + x) <= 0.25 * im2) {
+			return true;
+		}
+
+		double bulb = re + 1;
+		return bulb * bulb + im2 <= 0.0625;
+	}
+
+	/**
+	 * Returns the maximum number of iterations for every pixel.
+	 * 
+	 * @return Maximum number of iterations.
+	 */
+	public int getMaxIterations() {
+		return this.maxIterations;
+	}
+
+	/**
+	 * Sets the maximum number of iterations for every pixel.
+	 * 
+	 * @param maxIterations - Maximum number of iterations.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations < 1) {
+			throw new IllegalArgumentException("Maximum iterations must be at least 1: " + maxIterations);
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Sets whether points inside the main cardioid and the period 2 bulb are
+	 * recognized without iterating them.
+	 * 
+	 * @param interiorChecking - True to skip the cardioid and the bulb.
+	 */
+	public void setInteriorChecking(boolean interiorChecking) {
+		this.interiorChecking = interiorChecking;
+	}
+
+	/**
+	 * Returns whether points inside the main cardioid and the period 2 bulb
+	 * are recognized without iterating them.
+	 * 
+	 * @return True if the cardioid and the bulb are skipped.
+	 */
+	public boolean isInteriorChecking() {
+		return this.interiorChecking;
+	}
+
+	/**
+	 * Sets whether rows are mirrored across the real axis instead of iterated
+	 * when the viewport shows both sides of it.
+	 * 
+	 * @param mirroring - True to mirror rows across the real axis.
+	 */
+	public void setMirroring(boolean mirroring) {
+		this.mirroring = mirroring;
+	}
+
+	/**
+	 * Returns whether rows are mirrored across the real axis.
+	 * 
+	 * @return True if rows are mirrored across the real axis.
+	 */
+	public boolean isMirroring() {
+		return this.mirroring;
+	}
+
+	/**
+	 * Sets the number of threads used to generate the fractal. A value of one
+	 * generates the fractal on the calling thread.
+	 * 
+	 * @param parallelism - Number of threads to generate the fractal with.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+
+		if (this.parallelism != parallelism && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of threads used to generate the fractal.
+	 * 
+	 * @return Number of threads used to generate the fractal.
+	 */
+	public synchronized int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Lazily creates the pool that parallel generation runs on.
+	 * 
+	 * @return ForkJoinPool sized to the current parallelism, or null if the
+	 *         fractal is generated on the calling thread.
+	 */
+	synchronized ForkJoinPool getPool() {
+		if (parallelism == 1) {
+			return null;
+		}
+
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Returns the string representation of this class which is the class name itself.
+	 * Because this fractal generates an image this is the string
+	 * representation that was chosen.
+	 * 
+	 * @return the name of this class.
+	 */
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName();
+	}
+
+	/**
+	 * A band of rows that splits itself in half until it is small enough to
+	 * iterate directly.
+	 */
+	private class Rows extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] iterations;
+		private final int width;
+		private final int height;
+		private final int startY;
+		private final int endY;
+		private final Viewport viewport;
+		private final int mirror;
+		private final int maxIterations;
+		private final BooleanSupplier cancelled;
+
+		Rows(int[] iterations, int width, int height, int startY, int endY, Viewport viewport, int mirror,
+				int maxIterations, BooleanSupplier cancelled) {
+			this.iterations = iterations;
+			this.width = width;
+			this.height = height;
+			this.startY = startY;
+			this.endY = endY;
+			this.viewport = viewport;
+			this.mirror = mirror;
+			this.maxIterations = maxIterations;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		protected void compute() {
+			if (endY - startY <= BAND_ROWS) {
+				iterateRows();
+				return;
+			}
+
+			int middle = (startY + endY) >>> 1;
+			Rows first = new Rows(iterations, width, height, startY, middle, viewport, mirror, maxIterations,
+					cancelled);
+			Rows second = new Rows(iterations, width, height, middle, endY, viewport, mirror, maxIterations,
+					cancelled);
+
+			// Outside of a pool the fractal is generated on the calling thread.
+			if (inForkJoinPool()) {
+				invokeAll(first, second);
+			} else {
+				first.compute();
+				second.compute();
+			}
+		}
+
+		/**
+		 * Iterates every pixel of the rows of this band that is not mirrored.
+		 */
+		private void iterateRows() {
+			double minRe = viewport.getMinRe();
+			double minIm = viewport.getMinIm();
+			double range = viewport.getRange();
+			boolean rotated = viewport.isRotated();
+			boolean interior = interiorChecking;
+
+			for (int y = startY; y < endY; y++) {
+				if (cancelled.getAsBoolean()) {
+					throw new CancellationException();
+				}
+
+				if (isMirrored(viewport, height, mirror, y)) {
+					continue;
+				}
+
+				double b = y * range / height + minIm;
+				int row = y * width;
+
+				for (int x = 0; x < width; x++) {
+					double a = x * range / width + minRe;
+					double c = b;
+
+					if (rotated) {
+						a = viewport.toRe(x, y, width, height);
+						c = viewport.toIm(x, y, width, height);
+					}
+
+					if (interior && isInterior(a, c)) {
+						iterations[row + x] = maxIterations;
+					} else {
+						// The pixel is both the starting point and the seed.
+						iterations[row + x] = EscapeTime.iterate(a, c, a, c, maxIterations, SQUARED_THRESHOLD);
+					}
+				}
+			}
+		}
+	}
+}
@@ -29,6 +29,14 @@ import javafx.scene.canvas.GraphicsContext;
 /**
  * The Pythagoras tree is a plane fractal constructed from squares.
  * 
+ * The tree can be drawn line by line with
+ * {@link #drawTree(int, int, double, GraphicsContext)}, or generated into an
+ * array of coordinates with {@link #generateTree(int, int, double)} away from
+ * the JavaFX application thread and then drawn as a single path with
+ * {@link #drawTree(double[], GraphicsContext)}. The path is one stroke
+ * command for the whole tree where drawing it line by line records about
+ * six commands for every square.
+ * 
  * More information is available at:
  * https://en.wikipedia.org/wiki/Pythagoras_tree_(fractal)
  * 
@@ -39,6 +47,7 @@ import javafx.scene.canvas.GraphicsContext;
 public class PythagorasTree implements Fractal{
 	
 	private static final int MAX_BRANCH = 14;
+	private static final int NODE_COORDINATES = 10;
 	
 	private double angle = 0.5F;
 	
@@ -54,6 +63,102 @@ public class PythagorasTree implements Fractal{
 		genTree(gc, (width/2)-50, height, ((width/2)-50)+100, height, 0);
 	}
 	
+	/**
+	 * Generates the corners of every square of the Pythagoras tree into an
+	 * array, without drawing anything. Each square takes ten coordinates, the
+	 * x and y of its bottom left, bottom right, top right and top left corner
+	 * followed by the tip of the triangle on top of it. The squares are stored
+	 * branch after branch, so the children of square n are squares 2n + 1 and
+	 * 2n + 2 and the last half of the squares are the leaves.
+	 * 
+	 * @param width - width of the container or canvas.
+	 * @param height - height of the container or canvas.
+	 * @param angle - Where the tip of each triangle lies between the corners
+	 *            below it.
+	 * @return The coordinates of every square of the tree.
+	 */
+	public double[] generateTree(int width, int height, double angle) {
+		int nodes = (1 << MAX_BRANCH) - 1;
+		double[] tree = new double[nodes * NODE_COORDINATES];
+
+		tree[0] = (width / 2) - 50;
+		tree[1] = height;
+		tree[2] = ((width / 2) - 50) + 100;
+		tree[3] = height;
+
+		for (int node = 0; node < nodes; node++) {
+			int i = node * NODE_COORDINATES;
+			double x1 = tree[i];
+			double y1 = tree[i + 1];
+			double x2 = tree[i + 2];
+			double y2 = tree[i + 3];
+
+			double dx = x2 - x1;
+			double dy = y1 - y2;
+			double x3 = x2 - dy;
+			double y3 = y2 - dx;
+			double x4 = x1 - dy;
+			double y4 = y1 - dx;
+
+			tree[i + 4] = x3;
+			tree[i + 5] = y3;
+			tree[i + 6] = x4;
+			tree[i + 7] = y4;
+			tree[i + 8] = x4 + angle * (dx - dy);
+			tree[i + 9] = y4 - angle * (dx + dy);
+
+			// The bottom of each child is one side of the triangle.
+			int left = (2 * node + 1) * NODE_COORDINATES;
+
+			if (left < tree.length) {
+				tree[left] = x4;
+				tree[left + 1] = y4;
+				tree[left + 2] = tree[i + 8];
+				tree[left + 3] = tree[i + 9];
+				tree[left + NODE_COORDINATES] = tree[i + 8];
+				tree[left + NODE_COORDINATES + 1] = tree[i + 9];
+				tree[left + NODE_COORDINATES + 2] = x3;
+				tree[left + NODE_COORDINATES + 3] = y3;
+			}
+		}
+
+		return tree;
+	}
+
+	/**
+	 * Draws a tree generated by {@link #generateTree(int, int, double)} as a
+	 * single path stroked once. The sides of a triangle are the bottoms of
+	 * the squares on top of it, so only the triangles of the leaves are added
+	 * to the path.
+	 * 
+	 * @param tree - The coordinates of every square of the tree.
+	 * @param gc - GraphicsContext to use to draw with.
+	 */
+	public void drawTree(double[] tree, GraphicsContext gc) {
+		int nodes = tree.length / NODE_COORDINATES;
+		int firstLeaf = nodes / 2;
+
+		gc.beginPath();
+
+		for (int node = 0; node < nodes; node++) {
+			int i = node * NODE_COORDINATES;
+
+			gc.moveTo(tree[i], tree[i + 1]);
+			gc.lineTo(tree[i + 2], tree[i + 3]);
+			gc.lineTo(tree[i + 4], tree[i + 5]);
+			gc.lineTo(tree[i + 6], tree[i + 7]);
+			gc.closePath();
+
+			if (node >= firstLeaf) {
+				gc.moveTo(tree[i + 6], tree[i + 7]);
+				gc.lineTo(tree[i + 8], tree[i + 9]);
+				gc.lineTo(tree[i + 4], tree[i + 5]);
+			}
+		}
+
+		gc.stroke();
+	}
+
 	/**
 	 * Recursive method to generate the Pythagorean tree. 
 	 * This method draws a rectangle using the specified x and y values. 
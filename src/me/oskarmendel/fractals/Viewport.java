@@ -0,0 +1,332 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+/**
+ * Viewport describes the window of the complex plane that a fractal image
+ * shows. The window is centered on a point of the plane, reaches scale units
+ * from the center to every edge and is rotated counter clockwise by the
+ * rotation in radians around its center. A viewport is immutable, panning or
+ * zooming returns a new viewport.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name Viewport.java
+ */
+public final class Viewport {
+
+	/**
+	 * The window from -1 to 1 on both axes that fractals are drawn in by default.
+	 */
+	public static final Viewport DEFAULT = new Viewport(0, 0, 1, 0);
+
+	private final double centerRe;
+	private final double centerIm;
+	private final double scale;
+	private final double rotation;
+
+	private final double cos;
+	private final double sin;
+
+	/**
+	 * Constructs a new Viewport.
+	 * 
+	 * @param centerRe - Real part of the center of the window.
+	 * @param centerIm - Imaginary part of the center of the window.
+	 * @param scale - Distance from the center to the edges of the window.
+	 * @param rotation - Counter clockwise rotation of the window in radians.
+	 */
+	public Viewport(double centerRe, double centerIm, double scale, double rotation) {
+		if (!(scale > 0)) {
+			throw new IllegalArgumentException("Scale must be positive: " + scale);
+		}
+
+		this.centerRe = centerRe;
+		this.centerIm = centerIm;
+		this.scale = scale;
+		this.rotation = rotation;
+		this.cos = Math.cos(rotation);
+		this.sin = Math.sin(rotation);
+	}
+
+	/**
+	 * Returns the real part of the center of the window.
+	 * 
+	 * @return Real part of the center.
+	 */
+	public double getCenterRe() {
+		return this.centerRe;
+	}
+
+	/**
+	 * Returns the imaginary part of the center of the window.
+	 * 
+	 * @return Imaginary part of the center.
+	 */
+	public double getCenterIm() {
+		return this.centerIm;
+	}
+
+	/**
+	 * Returns the distance from the center to the edges of the window.
+	 * 
+	 * @return Scale of the window.
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * Returns the counter clockwise rotation of the window.
+	 * 
+	 * @return Rotation in radians.
+	 */
+	public double getRotation() {
+		return this.rotation;
+	}
+
+	/**
+	 * Returns whether the window is rotated.
+	 * 
+	 * @return True if the rotation is not zero.
+	 */
+	public boolean isRotated() {
+		return this.rotation != 0;
+	}
+
+	/**
+	 * Returns the real part of the left edge of the unrotated window.
+	 * 
+	 * @return Smallest real part in the unrotated window.
+	 */
+	public double getMinRe() {
+		return centerRe - scale;
+	}
+
+	/**
+	 * Returns the imaginary part of the top edge of the unrotated window.
+	 * 
+	 * @return Smallest imaginary part in the unrotated window.
+	 */
+	public double getMinIm() {
+		return centerIm - scale;
+	}
+
+	/**
+	 * Returns the width and height of the window in the complex plane.
+	 * 
+	 * @return Range of the window along both axes.
+	 */
+	public double getRange() {
+		return 2 * scale;
+	}
+
+	/**
+	 * Transforms a pixel to the real part of the point it shows.
+	 * 
+	 * @param x - X coordinate of the pixel.
+	 * @param y - Y coordinate of the pixel.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return Real part of the point.
+	 */
+	public double toRe(double x, double y, int width, int height) {
+		double a = x * getRange() / width + getMinRe();
+
+		if (!isRotated()) {
+			return a;
+		}
+
+		double b = y * getRange() / height + getMinIm();
+		return centerRe + (a - centerRe) * cos - (b - centerIm) * sin;
+	}
+
+	/**
+	 * Transforms a pixel to the imaginary part of the point it shows.
+	 * 
+	 * @param x - X coordinate of the pixel.
+	 * @param y - Y coordinate of the pixel.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return Imaginary part of the point.
+	 */
+	public double toIm(double x, double y, int width, int height) {
+		double b = y * getRange() / height + getMinIm();
+
+		if (!isRotated()) {
+			return b;
+		}
+
+		double a = x * getRange() / width + getMinRe();
+		return centerIm + (a - centerRe) * sin + (b - centerIm) * cos;
+	}
+
+	/**
+	 * Transforms a point of the complex plane to the x coordinate of the pixel
+	 * showing it.
+	 * 
+	 * @param re - Real part of the point.
+	 * @param im - Imaginary part of the point.
+	 * @param width - Width of the image.
+	 * @return X coordinate of the point in the image.
+	 */
+	public double toX(double re, double im, int width) {
+		double u = (re - centerRe) * cos + (im - centerIm) * sin;
+		return (u + scale) * width / getRange();
+	}
+
+	/**
+	 * Transforms a point of the complex plane to the y coordinate of the pixel
+	 * showing it.
+	 * 
+	 * @param re - Real part of the point.
+	 * @param im - Imaginary part of the point.
+	 * @param height - Height of the image.
+	 * @return Y coordinate of the point in the image.
+	 */
+	public double toY(double re, double im, int height) {
+		double v = -(re - centerRe) * sin + (im - centerIm) * cos;
+		return (v + scale) * height / getRange();
+	}
+
+	/**
+	 * Returns the position of the left edge of the window on a grid of pixels
+	 * that covers the whole rotated complex plane, with pixel zero starting at
+	 * the origin. Frames whose edges lie on whole pixels of this grid show the
+	 * same pixels wherever they overlap.
+	 * 
+	 * @param width - Width of the image.
+	 * @return Left edge of the window in pixels of the grid.
+	 */
+	public double originX(int width) {
+		double u = centerRe * cos + centerIm * sin;
+		return (u - scale) * width / getRange();
+	}
+
+	/**
+	 * Returns the position of the top edge of the window on a grid of pixels
+	 * that covers the whole rotated complex plane, see {@link #originX(int)}.
+	 * 
+	 * @param height - Height of the image.
+	 * @return Top edge of the window in pixels of the grid.
+	 */
+	public double originY(int height) {
+		double v = -centerRe * sin + centerIm * cos;
+		return (v - scale) * height / getRange();
+	}
+
+	/**
+	 * Moves the window by less than a pixel so its edges lie on whole pixels
+	 * of the grid covering the complex plane, see {@link #originX(int)}.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The aligned Viewport.
+	 */
+	public Viewport align(int width, int height) {
+		double originX = originX(width);
+		double originY = originY(height);
+
+		return pan(Math.rint(originX) - originX, Math.rint(originY) - originY, width, height);
+	}
+
+	/**
+	 * Moves the window by the specified number of pixels.
+	 * 
+	 * @param dx - Pixels to move the window to the right.
+	 * @param dy - Pixels to move the window down.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The moved Viewport.
+	 */
+	public Viewport pan(double dx, double dy, int width, int height) {
+		double u = dx * getRange() / width;
+		double v = dy * getRange() / height;
+
+		return new Viewport(centerRe + u * cos - v * sin, centerIm + u * sin + v * cos, scale, rotation);
+	}
+
+	/**
+	 * Scales the window around the specified pixel, which shows the same point
+	 * of the complex plane before and after zooming.
+	 * 
+	 * @param factor - Factor to scale the window by, less than one zooms in.
+	 * @param x - X coordinate of the pixel to zoom around.
+	 * @param y - Y coordinate of the pixel to zoom around.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return The scaled Viewport.
+	 */
+	public Viewport zoom(double factor, double x, double y, int width, int height) {
+		double re = toRe(x, y, width, height);
+		double im = toIm(x, y, width, height);
+
+		return new Viewport(re + (centerRe - re) * factor, im + (centerIm - im) * factor, scale * factor, rotation);
+	}
+
+	/**
+	 * Rotates the window around its center.
+	 * 
+	 * @param angle - Counter clockwise angle in radians to rotate by.
+	 * @return The rotated Viewport.
+	 */
+	public Viewport rotate(double angle) {
+		return new Viewport(centerRe, centerIm, scale, rotation + angle);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Viewport)) {
+			return false;
+		}
+
+		Viewport other = (Viewport) obj;
+		return Double.compare(centerRe, other.centerRe) == 0 && Double.compare(centerIm, other.centerIm) == 0
+				&& Double.compare(scale, other.scale) == 0 && Double.compare(rotation, other.rotation) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = Double.hashCode(centerRe);
+		hash = 31 * hash + Double.hashCode(centerIm);
+		hash = 31 * hash + Double.hashCode(scale);
+		hash = 31 * hash + Double.hashCode(rotation);
+		return hash;
+	}
+
+	/**
+	 * Returns the viewport as a string with its center, scale and rotation.
+	 * 
+	 * @return A string of the viewport.
+	 */
+	@Override
+	public String toString() {
+		return "Viewport[center=" + centerRe + (centerIm < 0 ? " - " : " + ") + Math.abs(centerIm) + "i, scale="
+				+ scale + ", rotation=" + rotation + "]";
+	}
+}
@@ -0,0 +1,543 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.fractals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import me.oskarmendel.render.Colorizer;
+import me.oskarmendel.render.RenderEvents;
+import me.oskarmendel.render.TileCache;
+import me.oskarmendel.render.TileKey;
+
+/**
+ * ViewportRenderer renders successive frames of a JuliaFractal while its
+ * viewport is panned and zoomed, reusing the iteration counts of the previous
+ * frame. When the viewport moves by whole pixels the still visible pixels are
+ * shifted into place and only the newly exposed strips are generated. When
+ * the viewport is zoomed or rotated the previous frame is reprojected onto the
+ * new viewport as an immediate preview that the fresh samples then replace.
+ * 
+ * A ViewportRenderer keeps the previous frame between calls and must only be
+ * used by one thread at a time.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name ViewportRenderer.java
+ */
+public class ViewportRenderer {
+
+	private static final int COARSEST_STEP = 8;
+	private static final double PIXEL_TOLERANCE = 1e-3;
+	private static final int TILE_SIZE = 32;
+
+	private final JuliaFractal fractal;
+	private final TileCache cache;
+	private volatile Colorizer colorizer = Colorizer.GRAY;
+
+	private int[] previous;
+	private int[] current;
+	private int[] reprojected;
+
+	private int width;
+	private int height;
+	private double realSeed;
+	private double imaginarySeed;
+	private int maxIterations;
+	private Viewport viewport;
+
+	/**
+	 * Constructs a new ViewportRenderer for the specified fractal.
+	 * 
+	 * @param fractal - JuliaFractal to render.
+	 */
+	public ViewportRenderer(JuliaFractal fractal) {
+		this(fractal, null);
+	}
+
+	/**
+	 * Constructs a new ViewportRenderer for the specified fractal that looks
+	 * up and stores tiles in the specified cache.
+	 * 
+	 * @param fractal - JuliaFractal to render.
+	 * @param cache - TileCache to look up and store tiles in, or null.
+	 */
+	public ViewportRenderer(JuliaFractal fractal, TileCache cache) {
+		this.fractal = fractal;
+		this.cache = cache;
+	}
+
+	/**
+	 * Sets the colorizer the iteration counts of the following passes are
+	 * colored with. Rendering the last frame again after changing it only
+	 * colors the pixels of the frame, none of them are generated again.
+	 * 
+	 * @param colorizer - Colorizer to color the counts with.
+	 */
+	public void setColorizer(Colorizer colorizer) {
+		this.colorizer = colorizer;
+	}
+
+	/**
+	 * Returns the colorizer the iteration counts are colored with.
+	 * 
+	 * @return The colorizer.
+	 */
+	public Colorizer getColorizer() {
+		return colorizer;
+	}
+
+	/**
+	 * Renders a frame as ARGB pixels. Every pass of the frame is written into
+	 * a buffer of width * height pixels taken from the specified supplier and
+	 * handed to the pass listener, which owns the buffer from then on. A frame
+	 * that only pans the previous frame is rendered in a single pass, other
+	 * frames are rendered from coarse to fine like
+	 * {@link JuliaFractal#generateProgressive(int, int, double, double, Consumer)}.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param buffers - Supplies a pixel buffer for every pass.
+	 * @param passListener - Receives the pixels of every pass as soon as it is done.
+	 * @param cancelled - Returns true once the frame is no longer wanted.
+	 * @return Histogram of the iteration counts of the frame, including the
+	 *         maximum number of iterations it was rendered with.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	public IterationHistogram render(int width, int height, double realSeed, double imaginarySeed,
+			Viewport viewport, Supplier<int[]> buffers, Consumer<int[]> passListener, BooleanSupplier cancelled) {
+		if (current == null || current.length != width * height) {
+			current = new int[width * height];
+		}
+
+		int maxIterations = fractal.getMaxIterations();
+		JuliaFractal.Frame frame = new JuliaFractal.Frame(current, width, height, realSeed, imaginarySeed, viewport,
+				maxIterations, cancelled);
+		boolean sameFractal = previous != null && this.width == width && this.height == height
+				&& Double.compare(this.realSeed, realSeed) == 0
+				&& Double.compare(this.imaginarySeed, imaginarySeed) == 0 && this.maxIterations == maxIterations;
+
+		boolean cached = cache != null && isAligned(viewport, width, height);
+		List<int[]> missing = new ArrayList<int[]>();
+		int hits = cached ? copyTiles(frame, missing) : 0;
+
+		if (cached && missing.isEmpty()) {
+			passListener.accept(shade(frame, 1, null, buffers.get()));
+		} else {
+			if (sameFractal && isPan(viewport)) {
+				renderPan(frame, buffers, passListener);
+			} else if (hits > 0) {
+				// Only generate the tiles that were not cached.
+				for (int[] tile : missing) {
+					Object event = RenderEvents.beginTile();
+
+					fractal.generateRegion(frame, tile[0], tile[1], tile[2], tile[3]);
+					RenderEvents.commitTile(event, fractal.toString(), tile[0], tile[1], tile[2], tile[3]);
+				}
+				passListener.accept(shade(frame, 1, null, buffers.get()));
+			} else {
+				renderPasses(frame, sameFractal ? reproject(frame) : null, buffers, passListener);
+			}
+
+			if (cached) {
+				storeTiles(frame);
+			}
+		}
+
+		// The frame is complete, keep it to reuse its pixels in the next frame.
+		int[] swap = previous;
+		previous = current;
+		current = swap;
+
+		this.width = width;
+		this.height = height;
+		this.realSeed = realSeed;
+		this.imaginarySeed = imaginarySeed;
+		this.maxIterations = maxIterations;
+		this.viewport = viewport;
+
+		return fractal.completeFrame(previous, maxIterations);
+	}
+
+	/**
+	 * Renders every tile of a frame that is not cached yet into the cache,
+	 * including the tiles that only lie partly within the frame, so rendering
+	 * the frame later only copies its tiles. Nothing is shown and the previous
+	 * frame is kept. Frames whose viewport is not aligned to the grid of tiles
+	 * are not prefetched.
+	 * 
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param viewport - The window of the complex plane to render.
+	 * @param cancelled - Returns true once the frame is no longer wanted.
+	 * @return Number of tiles that were rendered.
+	 * @throws CancellationException if the frame was cancelled.
+	 */
+	public int prefetch(int width, int height, double realSeed, double imaginarySeed, Viewport viewport,
+			BooleanSupplier cancelled) {
+		if (cache == null || !isAligned(viewport, width, height)) {
+			return 0;
+		}
+
+		long originX = (long) Math.rint(viewport.originX(width));
+		long originY = (long) Math.rint(viewport.originY(height));
+		int maxIterations = fractal.getMaxIterations();
+		int rendered = 0;
+
+		for (long tileY = Math.floorDiv(originY, TILE_SIZE); tileY * TILE_SIZE < originY + height; tileY++) {
+			for (long tileX = Math.floorDiv(originX, TILE_SIZE); tileX * TILE_SIZE < originX + width; tileX++) {
+				int x0 = (int) (tileX * TILE_SIZE - originX);
+				int y0 = (int) (tileY * TILE_SIZE - originY);
+				int[] tile = new int[TILE_SIZE * TILE_SIZE];
+
+				// The tile is generated in the pixel coordinates of the frame,
+				// which are negative above and left of it.
+				JuliaFractal.Frame frame = new JuliaFractal.Frame(tile, x0, y0, TILE_SIZE, width, height, realSeed,
+						imaginarySeed, viewport, maxIterations, cancelled);
+				TileKey key = tileKey(frame, tileX, tileY);
+
+				if (!cache.contains(key)) {
+					Object event = RenderEvents.beginTile();
+
+					fractal.generateRegion(frame, x0, y0, x0 + TILE_SIZE, y0 + TILE_SIZE);
+					RenderEvents.commitTile(event, fractal.toString(), x0, y0, x0 + TILE_SIZE, y0 + TILE_SIZE);
+					cache.put(key, tile);
+					rendered++;
+				}
+			}
+		}
+
+		return rendered;
+	}
+
+	/**
+	 * Returns whether the edges of the specified viewport lie on whole pixels
+	 * of the grid covering the complex plane.
+	 * 
+	 * @param viewport - Viewport of the frame.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @return True if the frame can be split into tiles of the grid.
+	 */
+	private static boolean isAligned(Viewport viewport, int width, int height) {
+		double originX = viewport.originX(width);
+		double originY = viewport.originY(height);
+
+		return Math.abs(originX - Math.rint(originX)) < PIXEL_TOLERANCE
+				&& Math.abs(originY - Math.rint(originY)) < PIXEL_TOLERANCE;
+	}
+
+	/**
+	 * Returns the key of a tile of the grid covering the complex plane.
+	 * 
+	 * @param frame - The frame showing the tile.
+	 * @param tileX - Column of the tile in the grid.
+	 * @param tileY - Row of the tile in the grid.
+	 * @return Key of the tile.
+	 */
+	private TileKey tileKey(JuliaFractal.Frame frame, long tileX, long tileY) {
+		Viewport viewport = frame.viewport;
+
+		return new TileKey(fractal.toString(), frame.realSeed, frame.imaginarySeed,
+				viewport.getRange() / frame.width, viewport.getRange() / frame.height, viewport.getRotation(), tileX,
+				tileY, frame.maxIterations);
+	}
+
+	/**
+	 * Copies every cached tile of the frame from the cache. Of the tiles at
+	 * the edges of the frame only the part within the frame is copied.
+	 * 
+	 * @param frame - The frame to copy the tiles into.
+	 * @param missing - Receives the rectangle x0, y0, x1, y1 of the frame
+	 *            covered by every tile that is not cached.
+	 * @return Number of tiles copied from the cache.
+	 */
+	private int copyTiles(JuliaFractal.Frame frame, List<int[]> missing) {
+		long originX = (long) Math.rint(frame.viewport.originX(frame.width));
+		long originY = (long) Math.rint(frame.viewport.originY(frame.height));
+		int hits = 0;
+
+		for (long tileY = Math.floorDiv(originY, TILE_SIZE); tileY * TILE_SIZE < originY + frame.height; tileY++) {
+			for (long tileX = Math.floorDiv(originX, TILE_SIZE); tileX * TILE_SIZE < originX
+					+ frame.width; tileX++) {
+				// The part of the tile that lies within the frame.
+				int x0 = (int) Math.max(0, tileX * TILE_SIZE - originX);
+				int x1 = (int) Math.min(frame.width, (tileX + 1) * TILE_SIZE - originX);
+				int y0 = (int) Math.max(0, tileY * TILE_SIZE - originY);
+				int y1 = (int) Math.min(frame.height, (tileY + 1) * TILE_SIZE - originY);
+				int[] tile = cache.get(tileKey(frame, tileX, tileY));
+
+				if (tile == null) {
+					missing.add(new int[] { x0, y0, x1, y1 });
+					continue;
+				}
+
+				// Pixel x, y of the frame is pixel x - left, y - top of the tile.
+				int left = (int) (tileX * TILE_SIZE - originX);
+				int top = (int) (tileY * TILE_SIZE - originY);
+
+				for (int y = y0; y < y1; y++) {
+					System.arraycopy(tile, (y - top) * TILE_SIZE + x0 - left, frame.iterations, y * frame.width + x0,
+							x1 - x0);
+				}
+				hits++;
+			}
+		}
+
+		return hits;
+	}
+
+	/**
+	 * Stores every tile that lies completely within the frame in the cache.
+	 * 
+	 * @param frame - The complete frame.
+	 */
+	private void storeTiles(JuliaFractal.Frame frame) {
+		long originX = (long) Math.rint(frame.viewport.originX(frame.width));
+		long originY = (long) Math.rint(frame.viewport.originY(frame.height));
+
+		for (long tileY = Math.floorDiv(originY + TILE_SIZE - 1, TILE_SIZE); (tileY + 1) * TILE_SIZE <= originY
+				+ frame.height; tileY++) {
+			for (long tileX = Math.floorDiv(originX + TILE_SIZE - 1, TILE_SIZE); (tileX + 1) * TILE_SIZE <= originX
+					+ frame.width; tileX++) {
+				int[] tile = new int[TILE_SIZE * TILE_SIZE];
+				int x0 = (int) (tileX * TILE_SIZE - originX);
+				int y0 = (int) (tileY * TILE_SIZE - originY);
+
+				for (int y = 0; y < TILE_SIZE; y++) {
+					System.arraycopy(frame.iterations, (y0 + y) * frame.width + x0, tile, y * TILE_SIZE, TILE_SIZE);
+				}
+				cache.put(tileKey(frame, tileX, tileY), tile);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the specified viewport is the previous viewport moved by
+	 * whole pixels, less than a full frame in both directions.
+	 * 
+	 * @param next - Viewport of the next frame.
+	 * @return True if the previous frame can be shifted into the next frame.
+	 */
+	private boolean isPan(Viewport next) {
+		if (Double.compare(next.getScale(), viewport.getScale()) != 0
+				|| Double.compare(next.getRotation(), viewport.getRotation()) != 0) {
+			return false;
+		}
+
+		double dx = shiftX(next);
+		double dy = shiftY(next);
+
+		return Math.abs(dx - Math.rint(dx)) < PIXEL_TOLERANCE && Math.abs(dy - Math.rint(dy)) < PIXEL_TOLERANCE
+				&& Math.abs(dx) < width && Math.abs(dy) < height;
+	}
+
+	/**
+	 * Returns how many pixels to the right the next viewport is moved.
+	 * 
+	 * @param next - Viewport of the next frame.
+	 * @return Horizontal movement in pixels.
+	 */
+	private double shiftX(Viewport next) {
+		return viewport.toX(next.getCenterRe(), next.getCenterIm(), width) - width / 2.0;
+	}
+
+	/**
+	 * Returns how many pixels down the next viewport is moved.
+	 * 
+	 * @param next - Viewport of the next frame.
+	 * @return Vertical movement in pixels.
+	 */
+	private double shiftY(Viewport next) {
+		return viewport.toY(next.getCenterRe(), next.getCenterIm(), height) - height / 2.0;
+	}
+
+	/**
+	 * Renders a frame that pans the previous frame by shifting the pixels
+	 * still visible and generating the strips along the edges that are not.
+	 * 
+	 * @param frame - The frame to render.
+	 * @param buffers - Supplies the pixel buffer.
+	 * @param passListener - Receives the pixels of the frame.
+	 */
+	private void renderPan(JuliaFractal.Frame frame, Supplier<int[]> buffers, Consumer<int[]> passListener) {
+		int dx = (int) Math.rint(shiftX(frame.viewport));
+		int dy = (int) Math.rint(shiftY(frame.viewport));
+
+		// Pixel x, y of the new frame shows pixel x + dx, y + dy of the previous frame.
+		int startX = Math.max(0, -dx);
+		int endX = Math.min(width, width - dx);
+		int startY = Math.max(0, -dy);
+		int endY = Math.min(height, height - dy);
+
+		for (int y = startY; y < endY; y++) {
+			System.arraycopy(previous, (y + dy) * width + startX + dx, frame.iterations, y * width + startX,
+					endX - startX);
+		}
+
+		// Generate the exposed columns over the full height and the exposed
+		// rows between them.
+		fractal.generateRegion(frame, 0, 0, startX, height);
+		fractal.generateRegion(frame, endX, 0, width, height);
+		fractal.generateRegion(frame, startX, 0, endX, startY);
+		fractal.generateRegion(frame, startX, endY, endX, height);
+
+		passListener.accept(shade(frame, 1, null, buffers.get()));
+	}
+
+	/**
+	 * Reprojects the previous frame onto the viewport of the specified frame.
+	 * 
+	 * @param frame - The frame to reproject the previous frame onto.
+	 * @return Iteration count of the previous frame at every pixel, or -1 for
+	 *         pixels outside the previous frame.
+	 */
+	private int[] reproject(JuliaFractal.Frame frame) {
+		if (reprojected == null || reprojected.length != frame.iterations.length) {
+			reprojected = new int[frame.iterations.length];
+		}
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double re = frame.viewport.toRe(x, y, width, height);
+				double im = frame.viewport.toIm(x, y, width, height);
+				int px = (int) Math.floor(viewport.toX(re, im, width));
+				int py = (int) Math.floor(viewport.toY(re, im, height));
+
+				if (px >= 0 && px < width && py >= 0 && py < height) {
+					reprojected[y * width + x] = previous[py * width + px];
+				} else {
+					reprojected[y * width + x] = -1;
+				}
+			}
+		}
+
+		return reprojected;
+	}
+
+	/**
+	 * Renders a frame from coarse to fine, showing the reprojected preview
+	 * first if there is one.
+	 * 
+	 * @param frame - The frame to render.
+	 * @param preview - Reprojected previous frame, or null.
+	 * @param buffers - Supplies a pixel buffer for every pass.
+	 * @param passListener - Receives the pixels of every pass.
+	 */
+	private void renderPasses(JuliaFractal.Frame frame, int[] preview, Supplier<int[]> buffers,
+			Consumer<int[]> passListener) {
+		if (preview != null) {
+			int[] colors = colorizer.colors(previous, maxIterations, fractal.getPool());
+			int[] argb = buffers.get();
+
+			for (int i = 0; i < argb.length; i++) {
+				argb[i] = colors[Math.max(preview[i], 0)];
+			}
+			passListener.accept(argb);
+		}
+
+		for (int step = COARSEST_STEP; step >= 1; step >>= 1) {
+			fractal.generate(frame, step, step < COARSEST_STEP);
+			passListener.accept(shade(frame, step, preview, buffers.get()));
+		}
+	}
+
+	/**
+	 * Colors the pixels generated so far. Pixels that are not generated yet
+	 * show the reprojected previous frame where there is one and the sample
+	 * in the top left corner of their block otherwise. Complete frames are
+	 * colored by the colorizer in parallel. The equalized colors of a coarse
+	 * pass only count the pixels generated so far, as the rest of the buffer
+	 * still holds an earlier frame.
+	 * 
+	 * @param frame - The frame to color.
+	 * @param step - Distance between the pixels generated so far.
+	 * @param preview - Reprojected previous frame, or null.
+	 * @param argb - Buffer to write the ARGB pixels to.
+	 * @return The buffer of ARGB pixels.
+	 */
+	private int[] shade(JuliaFractal.Frame frame, int step, int[] preview, int[] argb) {
+		int[] iterations = frame.iterations;
+		int width = frame.width;
+		int maxIterations = frame.maxIterations;
+
+		if (step == 1) {
+			return colorizer.colorize(iterations, maxIterations, argb, fractal.getPool());
+		}
+
+		int[] colors = colorizer.colors(colorizer.isEqualized() ? samples(frame, step) : iterations, maxIterations,
+				fractal.getPool());
+
+		for (int y = 0; y < frame.height; y++) {
+			int sampleRow = (y - y % step) * width;
+			int row = y * width;
+
+			for (int x = 0; x < width; x++) {
+				int i = row + x;
+				int sample = sampleRow + x - x % step;
+
+				if (i != sample && preview != null && preview[i] >= 0) {
+					argb[i] = colors[Math.min(preview[i], maxIterations)];
+				} else {
+					argb[i] = colors[Math.min(iterations[sample], maxIterations)];
+				}
+			}
+		}
+
+		return argb;
+	}
+
+	/**
+	 * Returns the counts of the pixels generated so far, the top left pixel of
+	 * every block.
+	 * 
+	 * @param frame - The frame being rendered.
+	 * @param step - Distance between the pixels generated so far.
+	 * @return The counts of the generated pixels.
+	 */
+	private static int[] samples(JuliaFractal.Frame frame, int step) {
+		int columns = (frame.width + step - 1) / step;
+		int rows = (frame.height + step - 1) / step;
+		int[] samples = new int[columns * rows];
+
+		for (int row = 0; row < rows; row++) {
+			int y = row * step * frame.width;
+
+			for (int column = 0; column < columns; column++) {
+				samples[row * columns + column] = frame.iterations[y + column * step];
+			}
+		}
+		return samples;
+	}
+}
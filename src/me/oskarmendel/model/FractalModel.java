@@ -32,6 +32,7 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import me.oskarmendel.fractals.Fractal;
 import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.MandelbrotFractal;
 import me.oskarmendel.fractals.PythagorasTree;
 import me.oskarmendel.fractals.SierpinskiTriangle;
 
@@ -46,11 +47,12 @@ import me.oskarmendel.fractals.SierpinskiTriangle;
 public class FractalModel {
 	
 	private final JuliaFractal juliaFractal = new JuliaFractal();
+	private final MandelbrotFractal mandelbrotFractal = new MandelbrotFractal();
 	private final PythagorasTree pythagorasTree = new PythagorasTree();
 	private final SierpinskiTriangle sierpinskiTriangle = new SierpinskiTriangle();
 	
 	private final ObservableList<Fractal> fractalList = FXCollections.observableArrayList(
-			juliaFractal, pythagorasTree, sierpinskiTriangle);
+			juliaFractal, mandelbrotFractal, pythagorasTree, sierpinskiTriangle);
 	
 	private final ObjectProperty<Fractal> activeFractal = new SimpleObjectProperty<>();
 	
@@ -100,6 +102,15 @@ public class FractalModel {
 		return this.juliaFractal;
 	}
 	
+	/**
+	 * Gets the initiated MandelbrotFractal object.
+	 * 
+	 * @return final MandelbrotFractal object.
+	 */
+	public final MandelbrotFractal getMandelbrotFractal() {
+		return this.mandelbrotFractal;
+	}
+	
 	/**
 	 * Gets the initiated PythagorasTree object.
 	 * 
@@ -0,0 +1,208 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Colorizer is the coloring stage of an escape time fractal. It maps a buffer
+ * of iteration counts to ARGB pixels through a lookup table with one color per
+ * iteration count, so the same counts can be colored again with another
+ * palette without iterating a single pixel.
+ * 
+ * Counts are either used directly as the index into the palette, counts past
+ * the end of the palette getting its last color, or equalized. Equalizing
+ * spreads the pixels of the frame evenly over the palette by indexing it with
+ * the fraction of pixels that took fewer iterations, so frames with a high
+ * maximum number of iterations still use every color.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name Colorizer.java
+ */
+public final class Colorizer {
+
+	/**
+	 * Colors every count with the gray level of the same value.
+	 */
+	public static final Colorizer GRAY = new Colorizer(Palette.GRAY, false);
+
+	private static final int STRIPE_PIXELS = 1 << 16;
+
+	private final Palette palette;
+	private final boolean equalized;
+
+	/**
+	 * Constructs a new Colorizer.
+	 * 
+	 * @param palette - Palette to color the counts with.
+	 * @param equalized - True to spread the pixels evenly over the palette.
+	 */
+	public Colorizer(Palette palette, boolean equalized) {
+		this.palette = palette;
+		this.equalized = equalized;
+	}
+
+	/**
+	 * Returns the palette the counts are colored with.
+	 * 
+	 * @return The palette.
+	 */
+	public Palette getPalette() {
+		return palette;
+	}
+
+	/**
+	 * Returns whether the pixels are spread evenly over the palette.
+	 * 
+	 * @return True if the colors are equalized.
+	 */
+	public boolean isEqualized() {
+		return equalized;
+	}
+
+	/**
+	 * Colors a buffer of iteration counts, in parallel when a pool is given.
+	 * 
+	 * @param iterations - The iteration counts to color.
+	 * @param maxIterations - Maximum number of iterations of the counts.
+	 * @param argb - Buffer to write the ARGB pixels to.
+	 * @param pool - Pool to color the pixels on, or null for the calling thread.
+	 * @return The buffer of ARGB pixels.
+	 */
+	public int[] colorize(int[] iterations, int maxIterations, int[] argb, ForkJoinPool pool) {
+		int[] colors = colors(iterations, maxIterations, pool);
+
+		run(pool, iterations.length, (start, end) -> {
+			for (int i = start; i < end; i++) {
+				argb[i] = colors[Math.min(iterations[i], maxIterations)];
+			}
+		});
+		return argb;
+	}
+
+	/**
+	 * Builds the lookup table of the color of every count from zero up to and
+	 * including the maximum number of iterations. Equalized colors depend on
+	 * the histogram of the counts, which is counted in stripes of the buffer
+	 * that every thread counts into a histogram of its own before they are
+	 * added up.
+	 * 
+	 * @param iterations - The iteration counts to color.
+	 * @param maxIterations - Maximum number of iterations of the counts.
+	 * @param pool - Pool to count the histogram on, or null for the calling thread.
+	 * @return Array of maxIterations + 1 ARGB colors.
+	 */
+	public int[] colors(int[] iterations, int maxIterations, ForkJoinPool pool) {
+		int[] colors = new int[maxIterations + 1];
+		int last = palette.size() - 1;
+
+		if (!equalized) {
+			for (int i = 0; i < colors.length; i++) {
+				colors[i] = palette.getColor(Math.min(i, last));
+			}
+			return colors;
+		}
+
+		List<int[]> histograms = new ArrayList<int[]>();
+
+		run(pool, iterations.length, (start, end) -> {
+			int[] histogram = new int[maxIterations + 1];
+
+			for (int i = start; i < end; i++) {
+				histogram[Math.min(iterations[i], maxIterations)]++;
+			}
+
+			synchronized (histograms) {
+				histograms.add(histogram);
+			}
+		});
+
+		// Index the palette with the fraction of pixels below every count.
+		long below = 0;
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = palette.getColor((int) (last * below / Math.max(iterations.length, 1)));
+
+			for (int[] histogram : histograms) {
+				below += histogram[i];
+			}
+		}
+		return colors;
+	}
+
+	/**
+	 * Runs an action over stripes of a buffer, in parallel when a pool is
+	 * given.
+	 * 
+	 * @param pool - Pool to run the stripes on, or null for the calling thread.
+	 * @param length - Length of the buffer.
+	 * @param action - Action to run on every stripe.
+	 */
+	private static void run(ForkJoinPool pool, int length, StripeAction action) {
+		if (pool == null || length <= STRIPE_PIXELS) {
+			action.run(0, length);
+			return;
+		}
+
+		int stripes = Math.min(pool.getParallelism(), (length + STRIPE_PIXELS - 1) / STRIPE_PIXELS);
+		List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+
+		for (int stripe = 0; stripe < stripes; stripe++) {
+			int start = (int) ((long) length * stripe / stripes);
+			int end = (int) ((long) length * (stripe + 1) / stripes);
+
+			tasks.add(new RecursiveAction() {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					action.run(start, end);
+				}
+			});
+		}
+
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * An action on the pixels from start (inclusive) to end (exclusive) of a
+	 * buffer.
+	 */
+	@FunctionalInterface
+	private interface StripeAction {
+		void run(int start, int end);
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * MappedIterationBuffer keeps the iteration counts of an image in a memory
+ * mapped file instead of on the heap, so images much larger than the heap can
+ * be rendered and the counts outlive the process that rendered them. The file
+ * holds one 32 bit count per pixel, row after row, and is mapped in regions of
+ * whole rows of at most a gigabyte each. Writing counts through to the disk
+ * writes the whole regions that hold them, so rows that are forced on their
+ * own should be mapped as regions of their own.
+ * 
+ * Separate threads may write separate rows at the same time.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name MappedIterationBuffer.java
+ */
+public class MappedIterationBuffer implements Closeable {
+
+	private static final long REGION_BYTES = 1L << 30;
+
+	private final RandomAccessFile file;
+	private final int width;
+	private final int height;
+	private final int regionRows;
+	private final MappedByteBuffer[] regions;
+
+	/**
+	 * Opens the iteration buffer of an image, creating the file if it does not
+	 * exist. The counts already in the file are kept.
+	 * 
+	 * @param path - File to keep the counts in.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @throws IOException if the file could not be opened or mapped.
+	 */
+	public MappedIterationBuffer(File path, int width, int height) throws IOException {
+		this(path, width, height, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Opens the iteration buffer of an image mapped in regions of the
+	 * specified number of rows, creating the file if it does not exist. The
+	 * counts already in the file are kept. Regions are never mapped larger
+	 * than a gigabyte.
+	 * 
+	 * @param path - File to keep the counts in.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @param regionRows - Rows of every mapped region.
+	 * @throws IOException if the file could not be opened or mapped.
+	 */
+	public MappedIterationBuffer(File path, int width, int height, int regionRows) throws IOException {
+		if (regionRows < 1) {
+			throw new IllegalArgumentException("The rows of a region must be positive.");
+		}
+
+		this.file = new RandomAccessFile(path, "rw");
+		this.width = width;
+		this.height = height;
+		int rowsPerRegion = (int) Math.min(regionRows, Math.max(1, REGION_BYTES / (4L * width)));
+		this.regionRows = rowsPerRegion;
+
+		int count = (int) ((height + (long) rowsPerRegion - 1) / rowsPerRegion);
+		this.regions = new MappedByteBuffer[count];
+
+		try {
+			FileChannel channel = file.getChannel();
+
+			for (int i = 0; i < count; i++) {
+				long start = 4L * width * i * rowsPerRegion;
+				long rows = Math.min(rowsPerRegion, height - (long) i * rowsPerRegion);
+
+				regions[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, 4L * width * rows);
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the width of the image.
+	 * 
+	 * @return Width of the image.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the height of the image.
+	 * 
+	 * @return Height of the image.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Writes the iteration counts of consecutive rows.
+	 * 
+	 * @param startY - First row to write.
+	 * @param iterations - Counts of the rows, one row after the other.
+	 * @param rows - Number of rows to write.
+	 */
+	public void writeRows(int startY, int[] iterations, int rows) {
+		for (int y = startY; y < startY + rows;) {
+			int n = Math.min(startY + rows, (y / regionRows + 1) * regionRows) - y;
+
+			IntBuffer region = regions[y / regionRows].asIntBuffer();
+			region.position((y % regionRows) * width);
+			region.put(iterations, (y - startY) * width, n * width);
+			y += n;
+		}
+	}
+
+	/**
+	 * Reads the iteration counts of consecutive rows.
+	 * 
+	 * @param startY - First row to read.
+	 * @param iterations - Receives the counts of the rows, one row after the other.
+	 * @param rows - Number of rows to read.
+	 */
+	public void readRows(int startY, int[] iterations, int rows) {
+		for (int y = startY; y < startY + rows;) {
+			int n = Math.min(startY + rows, (y / regionRows + 1) * regionRows) - y;
+
+			IntBuffer region = regions[y / regionRows].asIntBuffer();
+			region.position((y % regionRows) * width);
+			region.get(iterations, (y - startY) * width, n * width);
+			y += n;
+		}
+	}
+
+	/**
+	 * Writes the counts of consecutive rows through to the disk, so they
+	 * survive the machine going down and not only the process. The whole
+	 * regions holding the rows are written through.
+	 * 
+	 * @param startY - First row to write through.
+	 * @param rows - Number of rows to write through.
+	 */
+	public void force(int startY, int rows) {
+		for (int region = startY / regionRows; region <= (startY + rows - 1) / regionRows; region++) {
+			regions[region].force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
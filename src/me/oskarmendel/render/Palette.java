@@ -0,0 +1,172 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Palette is a fixed list of ARGB colors that iteration counts are colored
+ * with. The first color is used for the fewest iterations and the last color
+ * for the most.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name Palette.java
+ */
+public final class Palette {
+
+	/**
+	 * The 256 levels of a gray scale image, from black to white.
+	 */
+	public static final Palette GRAY = new Palette(grayLevels());
+
+	/**
+	 * 256 colors from black through red and orange to pale yellow.
+	 */
+	public static final Palette FIRE = gradient(256, 0xFF000000, 0xFF800000, 0xFFFF8000, 0xFFFFFFC0);
+
+	private final int[] colors;
+
+	/**
+	 * Constructs a new Palette of the specified colors.
+	 * 
+	 * @param colors - ARGB colors from the fewest iterations to the most.
+	 */
+	public Palette(int[] colors) {
+		if (colors.length == 0) {
+			throw new IllegalArgumentException("A palette needs at least one color.");
+		}
+		this.colors = colors.clone();
+	}
+
+	/**
+	 * Looks up one of the predefined palettes by name.
+	 * 
+	 * @param name - gray or fire.
+	 * @return The palette.
+	 * @throws IllegalArgumentException if there is no palette of that name.
+	 */
+	public static Palette named(String name) {
+		switch (name) {
+		case "gray":
+			return GRAY;
+		case "fire":
+			return FIRE;
+		default:
+			throw new IllegalArgumentException("Unknown palette: " + name);
+		}
+	}
+
+	/**
+	 * Creates a palette that blends evenly between the specified colors.
+	 * 
+	 * @param size - Number of colors in the palette.
+	 * @param stops - ARGB colors to blend between, from first to last.
+	 * @return The blended palette.
+	 */
+	public static Palette gradient(int size, int... stops) {
+		if (size < 1 || stops.length == 0) {
+			throw new IllegalArgumentException("A gradient needs a size and at least one color.");
+		}
+
+		int[] colors = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			double position = size == 1 ? 0 : (double) i * (stops.length - 1) / (size - 1);
+			int stop = Math.min((int) position, stops.length - 1);
+			int next = Math.min(stop + 1, stops.length - 1);
+
+			colors[i] = blend(stops[stop], stops[next], position - stop);
+		}
+		return new Palette(colors);
+	}
+
+	/**
+	 * Creates a palette of the specified size that blends evenly between the
+	 * colors of this palette, so it spans the same colors.
+	 * 
+	 * @param size - Number of colors in the new palette.
+	 * @return The resized palette.
+	 */
+	public Palette resize(int size) {
+		return gradient(size, colors);
+	}
+
+	/**
+	 * Returns the number of colors in the palette.
+	 * 
+	 * @return Number of colors.
+	 */
+	public int size() {
+		return colors.length;
+	}
+
+	/**
+	 * Returns a color of the palette.
+	 * 
+	 * @param index - Index of the color.
+	 * @return ARGB color.
+	 */
+	public int getColor(int index) {
+		return colors[index];
+	}
+
+	/**
+	 * Blends two ARGB colors channel by channel.
+	 * 
+	 * @param from - Color at weight zero.
+	 * @param to - Color at weight one.
+	 * @param weight - How far to blend towards the second color.
+	 * @return The blended ARGB color.
+	 */
+	private static int blend(int from, int to, double weight) {
+		int color = 0;
+
+		for (int shift = 0; shift < 32; shift += 8) {
+			int a = (from >>> shift) & 0xFF;
+			int b = (to >>> shift) & 0xFF;
+
+			color |= (int) Math.round(a + (b - a) * weight) << shift;
+		}
+		return color;
+	}
+
+	/**
+	 * Looks up the ARGB color of every gray level of a gray scale image, so
+	 * colored pixels look the same as the pixels of the gray scale images.
+	 * 
+	 * @return Array of the 256 gray levels as ARGB colors.
+	 */
+	private static int[] grayLevels() {
+		BufferedImage img = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+		int[] colors = new int[256];
+
+		for (int i = 0; i < colors.length; i++) {
+			img.getRaster().setSample(i, 0, 0, i);
+		}
+		img.getRGB(0, 0, colors.length, 1, colors, 0, colors.length);
+
+		return colors;
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngStreamWriter encodes an RGB image as a PNG one row at a time, so images
+ * of any size can be written while only a few rows are held in memory. The
+ * compressed rows are written out in IDAT chunks as soon as a chunk is full.
+ * 
+ * More information is available at:
+ * https://www.w3.org/TR/PNG/
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name PngStreamWriter.java
+ */
+public class PngStreamWriter implements Closeable {
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int CHUNK_BYTES = 1 << 16;
+	private static final int BIT_DEPTH = 8;
+	private static final int COLOR_TYPE_RGB = 2;
+	private static final int FILTER_NONE = 0;
+
+	private final DataOutputStream out;
+	private final int width;
+	private final int height;
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	private final DeflaterOutputStream idat;
+	private final byte[] scanline;
+
+	private int rows;
+
+	/**
+	 * Constructs a new PngStreamWriter and writes the header of the image.
+	 * 
+	 * @param out - Stream to write the image to.
+	 * @param width - Width of the image.
+	 * @param height - Height of the image.
+	 * @throws IOException if the header could not be written.
+	 */
+	public PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Image must be at least 1x1: " + width + "x" + height);
+		}
+
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		this.scanline = new byte[1 + 3 * width];
+		this.idat = new DeflaterOutputStream(new ChunkOutputStream("IDAT"), deflater, CHUNK_BYTES);
+
+		this.out.write(SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(BIT_DEPTH);
+		data.writeByte(COLOR_TYPE_RGB);
+		data.writeByte(0); // Deflate compression
+		data.writeByte(0); // Adaptive filtering
+		data.writeByte(0); // No interlace
+		writeChunk("IHDR", header.toByteArray(), header.size());
+	}
+
+	/**
+	 * Writes the next rows of the image. The alpha of the pixels is ignored.
+	 * 
+	 * @param argb - ARGB pixels of the rows, one row after the other.
+	 * @param rows - Number of rows to write.
+	 * @throws IOException if the rows could not be written.
+	 */
+	public void writeRows(int[] argb, int rows) throws IOException {
+		if (this.rows + rows > height) {
+			throw new IllegalStateException("The image only has " + height + " rows.");
+		}
+
+		for (int y = 0; y < rows; y++) {
+			int row = y * width;
+			scanline[0] = FILTER_NONE;
+
+			for (int x = 0, i = 1; x < width; x++) {
+				int color = argb[row + x];
+				scanline[i++] = (byte) (color >> 16);
+				scanline[i++] = (byte) (color >> 8);
+				scanline[i++] = (byte) color;
+			}
+			idat.write(scanline);
+		}
+		this.rows += rows;
+	}
+
+	/**
+	 * Finishes the image and closes the underlying stream.
+	 * 
+	 * @throws IOException if the image could not be finished or if not every
+	 *             row of the image was written.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (rows != height) {
+				throw new IOException("Only " + rows + " of " + height + " rows were written.");
+			}
+
+			idat.close();
+			writeChunk("IEND", new byte[0], 0);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a chunk with its length and checksum.
+	 * 
+	 * @param type - The four letter type of the chunk.
+	 * @param data - Data of the chunk.
+	 * @param length - Number of bytes of data.
+	 * @throws IOException if the chunk could not be written.
+	 */
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(name);
+		crc.update(data, 0, length);
+
+		out.writeInt(length);
+		out.write(name);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * Collects the compressed rows into chunks of a fixed size. Closing it
+	 * writes the last chunk but leaves the image open.
+	 */
+	private class ChunkOutputStream extends OutputStream {
+
+		private final String type;
+		private final byte[] buffer = new byte[CHUNK_BYTES];
+		private int length;
+
+		ChunkOutputStream(String type) {
+			this.type = type;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			buffer[length++] = (byte) b;
+
+			if (length == buffer.length) {
+				flushChunk();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, buffer.length - length);
+				System.arraycopy(b, off, buffer, length, n);
+				length += n;
+				off += n;
+				len -= n;
+
+				if (length == buffer.length) {
+					flushChunk();
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flushChunk();
+		}
+
+		private void flushChunk() throws IOException {
+			if (length > 0) {
+				writeChunk(type, buffer, length);
+				length = 0;
+			}
+		}
+	}
+}
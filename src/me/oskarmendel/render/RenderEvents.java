@@ -0,0 +1,277 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * RenderEvents emits Java Flight Recorder events for every rendered frame and
+ * every generated tile, so a flight recording shows what the render threads
+ * spent their time on. The events are only emitted on runtimes that have the
+ * jdk.jfr API, on others every method does nothing.
+ * 
+ * The event types are defined at runtime through jdk.jfr.EventFactory, which
+ * is only reached by reflection, so the tree compiles on every Java 8 JDK
+ * including those from before the flight recorder API was added in 8u262.
+ * 
+ * An event is started before the work it times and committed after it, with
+ * the started event passed around as an opaque handle:
+ * 
+ * <pre>
+ * Object event = RenderEvents.beginTile();
+ * ...
+ * RenderEvents.commitTile(event, "JuliaFractal", x0, y0, x1, y1);
+ * </pre>
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name RenderEvents.java
+ */
+public final class RenderEvents {
+
+	private static final Logger LOGGER = Logger.getLogger(RenderEvents.class.getName());
+
+	private static Method newEventMethod;
+	private static Method beginMethod;
+	private static Method endMethod;
+	private static Method shouldCommitMethod;
+	private static Method setMethod;
+	private static Method commitMethod;
+	private static volatile Object frameFactory;
+	private static volatile Object tileFactory;
+
+	static {
+		try {
+			Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event = Class.forName("jdk.jfr.Event");
+
+			newEventMethod = factory.getMethod("newEvent");
+			beginMethod = event.getMethod("begin");
+			endMethod = event.getMethod("end");
+			shouldCommitMethod = event.getMethod("shouldCommit");
+			setMethod = event.getMethod("set", int.class, Object.class);
+			commitMethod = event.getMethod("commit");
+
+			frameFactory = createFactory("me.oskarmendel.Frame", "Frame",
+					field(String.class, "fractal", "Fractal", false),
+					field(int.class, "width", "Width", false),
+					field(int.class, "height", "Height", false),
+					field(long.class, "iterations", "Iterations", false),
+					field(long.class, "queueWait", "Queue Wait", true),
+					field(boolean.class, "cancelled", "Cancelled", false));
+			tileFactory = createFactory("me.oskarmendel.Tile", "Tile",
+					field(String.class, "fractal", "Fractal", false),
+					field(int.class, "x", "X", false),
+					field(int.class, "y", "Y", false),
+					field(int.class, "width", "Width", false),
+					field(int.class, "height", "Height", false));
+		} catch (ClassNotFoundException e) {
+			// Runtimes without the flight recorder emit no events.
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Flight recorder events are not available", e);
+			frameFactory = null;
+			tileFactory = null;
+		}
+	}
+
+	private RenderEvents() {
+	}
+
+	/**
+	 * Starts timing a frame.
+	 * 
+	 * @return Handle of the frame event, or null if events are not available.
+	 */
+	public static Object beginFrame() {
+		return begin(frameFactory);
+	}
+
+	/**
+	 * Commits the event of a frame if flight recording is on.
+	 * 
+	 * @param handle - Handle returned by {@link #beginFrame()}.
+	 * @param fractal - Name of the fractal.
+	 * @param width - Width of the frame.
+	 * @param height - Height of the frame.
+	 * @param iterations - Iterations the pixels of the frame take together.
+	 * @param waitNanos - Time the frame waited to start rendering in nanoseconds.
+	 * @param cancelled - True if the frame was cancelled.
+	 */
+	public static void commitFrame(Object handle, String fractal, int width, int height, long iterations,
+			long waitNanos, boolean cancelled) {
+		if (handle == null) {
+			return;
+		}
+
+		commit(handle, fractal, width, height, iterations, waitNanos, cancelled);
+	}
+
+	/**
+	 * Starts timing a tile.
+	 * 
+	 * @return Handle of the tile event, or null if events are not available.
+	 */
+	public static Object beginTile() {
+		return begin(tileFactory);
+	}
+
+	/**
+	 * Commits the event of a tile if flight recording is on.
+	 * 
+	 * @param handle - Handle returned by {@link #beginTile()}.
+	 * @param fractal - Name of the fractal.
+	 * @param x0 - Left edge of the tile.
+	 * @param y0 - Top edge of the tile.
+	 * @param x1 - Right edge of the tile.
+	 * @param y1 - Bottom edge of the tile.
+	 */
+	public static void commitTile(Object handle, String fractal, int x0, int y0, int x1, int y1) {
+		if (handle == null) {
+			return;
+		}
+
+		commit(handle, fractal, x0, y0, x1 - x0, y1 - y0);
+	}
+
+	/**
+	 * Creates and starts an event of the specified type.
+	 * 
+	 * @param factory - The EventFactory of the type, or null.
+	 * @return The started event, or null if events are not available.
+	 */
+	private static Object begin(Object factory) {
+		if (factory == null) {
+			return null;
+		}
+
+		try {
+			Object event = newEventMethod.invoke(factory);
+			beginMethod.invoke(event);
+			return event;
+		} catch (ReflectiveOperationException e) {
+			disable(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Ends an event and commits it with the specified values if flight
+	 * recording is on.
+	 * 
+	 * @param event - The started event.
+	 * @param values - The values of the fields of the event, in order.
+	 */
+	private static void commit(Object event, Object... values) {
+		try {
+			endMethod.invoke(event);
+
+			if ((Boolean) shouldCommitMethod.invoke(event)) {
+				for (int i = 0; i < values.length; i++) {
+					setMethod.invoke(event, i, values[i]);
+				}
+				commitMethod.invoke(event);
+			}
+		} catch (ReflectiveOperationException e) {
+			disable(e);
+		}
+	}
+
+	/**
+	 * Stops emitting events after the flight recorder failed.
+	 * 
+	 * @param e - The failure.
+	 */
+	private static void disable(ReflectiveOperationException e) {
+		if (frameFactory != null || tileFactory != null) {
+			frameFactory = null;
+			tileFactory = null;
+			LOGGER.log(Level.WARNING, "Flight recorder events failed and are turned off", e);
+		}
+	}
+
+	/**
+	 * Creates the EventFactory of an event type in the FractalFX category.
+	 * 
+	 * @param name - Name of the event type.
+	 * @param label - Label of the event type.
+	 * @param fields - ValueDescriptors of the fields of the event.
+	 * @return The EventFactory of the event type.
+	 * @throws ReflectiveOperationException if the flight recorder API differs.
+	 */
+	private static Object createFactory(String name, String label, Object... fields)
+			throws ReflectiveOperationException {
+		List<Object> annotations = Arrays.asList(annotation("Name", name), annotation("Label", label),
+				annotation("Category", new String[] { "FractalFX" }));
+
+		return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class).invoke(null,
+				annotations, Arrays.asList(fields));
+	}
+
+	/**
+	 * Creates the ValueDescriptor of a field of an event type.
+	 * 
+	 * @param type - Type of the field.
+	 * @param name - Name of the field.
+	 * @param label - Label of the field.
+	 * @param timespan - True if the field is a duration in nanoseconds.
+	 * @return The ValueDescriptor of the field.
+	 * @throws ReflectiveOperationException if the flight recorder API differs.
+	 */
+	private static Object field(Class<?> type, String name, String label, boolean timespan)
+			throws ReflectiveOperationException {
+		List<Object> annotations = new ArrayList<Object>(Collections.singletonList(annotation("Label", label)));
+
+		if (timespan) {
+			annotations.add(annotation("Timespan", "NANOSECONDS"));
+		}
+
+		Constructor<?> descriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class,
+				String.class, List.class);
+		return descriptor.newInstance(type, name, annotations);
+	}
+
+	/**
+	 * Creates an AnnotationElement of one of the jdk.jfr annotations.
+	 * 
+	 * @param annotation - Simple name of the annotation.
+	 * @param value - Value of the annotation.
+	 * @return The AnnotationElement.
+	 * @throws ReflectiveOperationException if the flight recorder API differs.
+	 */
+	private static Object annotation(String annotation, Object value) throws ReflectiveOperationException {
+		Class<?> type = Class.forName("jdk.jfr." + annotation);
+		Constructor<?> element = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class,
+				Object.class);
+
+		return element.newInstance(type.asSubclass(Annotation.class), value);
+	}
+}
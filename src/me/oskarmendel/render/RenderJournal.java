@@ -0,0 +1,171 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+/**
+ * RenderJournal records which tiles of a long running render are complete,
+ * so a render that is stopped halfway resumes with the tiles it had not
+ * finished. The journal is a text file whose first line describes the render
+ * and whose other lines each name a completed tile. A journal describing
+ * another render is started over.
+ * 
+ * A tile must only be marked as complete once its results are stored, then a
+ * render stopped at any point loses at most the tiles it was working on.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name RenderJournal.java
+ */
+public class RenderJournal implements Closeable {
+
+	private final BitSet completed = new BitSet();
+	private final FileOutputStream out;
+
+	/**
+	 * Opens the journal of a render, reading the tiles it already completed.
+	 * 
+	 * @param path - File of the journal.
+	 * @param description - One line describing the render, which the journal
+	 *            must match to be resumed.
+	 * @throws IOException if the journal could not be read or written.
+	 */
+	public RenderJournal(File path, String description) throws IOException {
+		boolean resumed = path.exists() && read(path, description);
+
+		this.out = new FileOutputStream(path, resumed);
+
+		// Drop a line cut short by the render stopping before appending.
+		if (resumed) {
+			out.getChannel().truncate(validBytes(path));
+		}
+
+		if (!resumed) {
+			write(description);
+		}
+	}
+
+	/**
+	 * Returns whether a tile is complete.
+	 * 
+	 * @param tile - Index of the tile.
+	 * @return True if the tile was completed.
+	 */
+	public synchronized boolean isComplete(int tile) {
+		return completed.get(tile);
+	}
+
+	/**
+	 * Returns the number of completed tiles.
+	 * 
+	 * @return Number of completed tiles.
+	 */
+	public synchronized int getCompleted() {
+		return completed.cardinality();
+	}
+
+	/**
+	 * Marks a tile as complete and writes it through to the disk.
+	 * 
+	 * @param tile - Index of the tile.
+	 * @throws IOException if the journal could not be written.
+	 */
+	public synchronized void complete(int tile) throws IOException {
+		if (!completed.get(tile)) {
+			write(Integer.toString(tile));
+			completed.set(tile);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Reads the completed tiles of a journal.
+	 * 
+	 * @param path - File of the journal.
+	 * @param description - Description the journal must start with.
+	 * @return True if the journal describes the same render.
+	 * @throws IOException if the journal could not be read.
+	 */
+	private boolean read(File path, String description) throws IOException {
+		String[] lines = new String(Files.readAllBytes(path.toPath()), StandardCharsets.UTF_8).split("\n", -1);
+
+		if (lines.length < 2) {
+			return false;
+		}
+
+		if (!description.equals(lines[0])) {
+			return false;
+		}
+
+		// The last line is either empty or was cut short by the render
+		// stopping, so it is never a tile.
+		for (int i = 1; i < lines.length - 1; i++) {
+			try {
+				completed.set(Integer.parseInt(lines[i]));
+			} catch (NumberFormatException | IndexOutOfBoundsException e) {
+				// Skip the damaged line.
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the length of a journal up to and including its last line break.
+	 * 
+	 * @param path - File of the journal.
+	 * @return Number of bytes of complete lines.
+	 * @throws IOException if the journal could not be read.
+	 */
+	private static long validBytes(File path) throws IOException {
+		byte[] bytes = Files.readAllBytes(path.toPath());
+		int length = bytes.length;
+
+		while (length > 0 && bytes[length - 1] != '\n') {
+			length--;
+		}
+		return length;
+	}
+
+	/**
+	 * Appends a line to the journal and writes it through to the disk.
+	 * 
+	 * @param line - The line to append.
+	 * @throws IOException if the line could not be written.
+	 */
+	private void write(String line) throws IOException {
+		out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+		out.getFD().sync();
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+/**
+ * RenderMetrics collects the timing of every frame a view renders: wall time,
+ * pixels per second, iterations and the time the frame waited for the render
+ * thread, together with the frames the RenderScheduler dropped or cancelled
+ * and how often the TileCache had the tiles asked for. It can be registered
+ * as an MBean to watch a running application.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name RenderMetrics.java
+ */
+public class RenderMetrics implements RenderMetricsMBean {
+
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final RenderScheduler scheduler;
+	private final TileCache cache;
+
+	private long frames;
+	private long frameNanos;
+	private long maxFrameNanos;
+	private long lastFrameNanos;
+	private long pixels;
+	private long lastPixels;
+	private long iterations;
+	private long lastIterations;
+	private long waitNanos;
+	private long maxWaitNanos;
+	private long lastWaitNanos;
+
+	// Counters of the scheduler and the cache when the metrics were reset.
+	private long droppedBase;
+	private long cancelledBase;
+	private long hitsBase;
+	private long missesBase;
+
+	/**
+	 * Constructs new RenderMetrics.
+	 * 
+	 * @param scheduler - Scheduler rendering the frames, or null.
+	 * @param cache - Cache of the tiles of the frames, or null.
+	 */
+	public RenderMetrics(RenderScheduler scheduler, TileCache cache) {
+		this.scheduler = scheduler;
+		this.cache = cache;
+	}
+
+	/**
+	 * Records a completely rendered frame.
+	 * 
+	 * @param frameNanos - Wall time of the frame in nanoseconds.
+	 * @param waitNanos - Time the frame waited to start rendering in nanoseconds.
+	 * @param pixels - Number of pixels of the frame.
+	 * @param iterations - Iterations the pixels of the frame take together.
+	 */
+	public synchronized void recordFrame(long frameNanos, long waitNanos, long pixels, long iterations) {
+		this.frames++;
+		this.frameNanos += frameNanos;
+		this.maxFrameNanos = Math.max(this.maxFrameNanos, frameNanos);
+		this.lastFrameNanos = frameNanos;
+		this.pixels += pixels;
+		this.lastPixels = pixels;
+		this.iterations += iterations;
+		this.lastIterations = iterations;
+		this.waitNanos += waitNanos;
+		this.maxWaitNanos = Math.max(this.maxWaitNanos, waitNanos);
+		this.lastWaitNanos = waitNanos;
+	}
+
+	@Override
+	public synchronized long getFrames() {
+		return frames;
+	}
+
+	@Override
+	public synchronized long getCancelledFrames() {
+		return scheduler != null ? scheduler.getCancelled() - cancelledBase : 0;
+	}
+
+	@Override
+	public synchronized long getDroppedFrames() {
+		return scheduler != null ? scheduler.getDropped() - droppedBase : 0;
+	}
+
+	@Override
+	public synchronized double getLastFrameMillis() {
+		return lastFrameNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized double getAverageFrameMillis() {
+		return frames > 0 ? frameNanos / NANOS_PER_MILLI / frames : 0;
+	}
+
+	@Override
+	public synchronized double getMaxFrameMillis() {
+		return maxFrameNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized double getLastPixelsPerSecond() {
+		return lastFrameNanos > 0 ? lastPixels * 1e9 / lastFrameNanos : 0;
+	}
+
+	@Override
+	public synchronized double getPixelsPerSecond() {
+		return frameNanos > 0 ? pixels * 1e9 / frameNanos : 0;
+	}
+
+	@Override
+	public synchronized long getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public synchronized long getLastIterations() {
+		return lastIterations;
+	}
+
+	@Override
+	public synchronized double getLastQueueWaitMillis() {
+		return lastWaitNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized double getAverageQueueWaitMillis() {
+		return frames > 0 ? waitNanos / NANOS_PER_MILLI / frames : 0;
+	}
+
+	@Override
+	public synchronized double getMaxQueueWaitMillis() {
+		return maxWaitNanos / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public synchronized double getTileCacheHitRate() {
+		if (cache == null) {
+			return 0;
+		}
+
+		long hits = cache.getHits() - hitsBase;
+		long lookups = hits + cache.getMisses() - missesBase;
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+
+	@Override
+	public synchronized void reset() {
+		frames = 0;
+		frameNanos = 0;
+		maxFrameNanos = 0;
+		lastFrameNanos = 0;
+		pixels = 0;
+		lastPixels = 0;
+		iterations = 0;
+		lastIterations = 0;
+		waitNanos = 0;
+		maxWaitNanos = 0;
+		lastWaitNanos = 0;
+
+		if (scheduler != null) {
+			droppedBase = scheduler.getDropped();
+			cancelledBase = scheduler.getCancelled();
+		}
+		if (cache != null) {
+			hitsBase = cache.getHits();
+			missesBase = cache.getMisses();
+		}
+	}
+}
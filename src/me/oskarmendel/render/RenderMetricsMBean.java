@@ -0,0 +1,138 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.render;
+
+/**
+ * Management interface of {@link RenderMetrics}, the attributes it shows in
+ * JMX consoles such as JConsole and VisualVM.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name RenderMetricsMBean.java
+ */
+public interface RenderMetricsMBean {
+
+	/**
+	 * Returns the number of frames rendered completely.
+	 * 
+	 * @return Number of frames rendered completely.
+	 */
+	long getFrames();
+
+	/**
+	 * Returns the number of frames cancelled by a newer frame while rendering.
+	 * 
+	 * @return Number of frames cancelled by a newer frame while rendering.
+	 */
+	long getCancelledFrames();
+
+	/**
+	 * Returns the number of frames replaced by a newer frame before rendering.
+	 * 
+	 * @return Number of frames replaced by a newer frame before rendering.
+	 */
+	long getDroppedFrames();
+
+	/**
+	 * Returns the wall time of the last frame in milliseconds.
+	 * 
+	 * @return Wall time of the last frame in milliseconds.
+	 */
+	double getLastFrameMillis();
+
+	/**
+	 * Returns the average wall time of a frame in milliseconds.
+	 * 
+	 * @return Average wall time of a frame in milliseconds.
+	 */
+	double getAverageFrameMillis();
+
+	/**
+	 * Returns the longest wall time of a frame in milliseconds.
+	 * 
+	 * @return Longest wall time of a frame in milliseconds.
+	 */
+	double getMaxFrameMillis();
+
+	/**
+	 * Returns the pixels per second of the last frame.
+	 * 
+	 * @return Pixels per second of the last frame.
+	 */
+	double getLastPixelsPerSecond();
+
+	/**
+	 * Returns the pixels per second over every frame.
+	 * 
+	 * @return Pixels per second over every frame.
+	 */
+	double getPixelsPerSecond();
+
+	/**
+	 * Returns the iterations the pixels of every frame take together.
+	 * 
+	 * @return Iterations the pixels of every frame take together.
+	 */
+	long getIterations();
+
+	/**
+	 * Returns the iterations the pixels of the last frame take together.
+	 * 
+	 * @return Iterations the pixels of the last frame take together.
+	 */
+	long getLastIterations();
+
+	/**
+	 * Returns the time the last frame waited to start rendering in milliseconds.
+	 * 
+	 * @return Time the last frame waited to start rendering in milliseconds.
+	 */
+	double getLastQueueWaitMillis();
+
+	/**
+	 * Returns the average time a frame waited to start rendering in milliseconds.
+	 * 
+	 * @return Average time a frame waited to start rendering in milliseconds.
+	 */
+	double getAverageQueueWaitMillis();
+
+	/**
+	 * Returns the longest time a frame waited to start rendering in milliseconds.
+	 * 
+	 * @return Longest time a frame waited to start rendering in milliseconds.
+	 */
+	double getMaxQueueWaitMillis();
+
+	/**
+	 * Returns the fraction of tile lookups that found their tile.
+	 * 
+	 * @return Fraction of tile lookups that found their tile.
+	 */
+	double getTileCacheHitRate();
+
+	/**
+	 * Starts counting every metric from zero.
+	 */
+	void reset();
+}
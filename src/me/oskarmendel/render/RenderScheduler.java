@@ -0,0 +1,310 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.render;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+
+/**
+ * RenderScheduler renders fractals on a background thread so the JavaFX
+ * application thread is never blocked by an expensive frame. Bursts of render
+ * requests are coalesced so only the newest one runs, and a render that is
+ * still running when a newer one is submitted is cancelled. Only results of
+ * the newest render are handed back to the JavaFX application thread.
+ * 
+ * When there is nothing to render the thread runs the idle job, if there is
+ * one. Idle jobs do speculative work such as rendering frames that are likely
+ * to be asked for next, so any submitted job cancels them.
+ * 
+ * The scheduler counts the jobs replaced before they started and the jobs
+ * cancelled while rendering, idle jobs not included. A job that fails without
+ * being cancelled is handed to the failure handler, which logs it unless
+ * another handler is set.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name RenderScheduler.java
+ */
+public class RenderScheduler {
+
+	private static final Logger LOGGER = Logger.getLogger(RenderScheduler.class.getName());
+
+	private final AtomicLong generation = new AtomicLong();
+	private final Thread worker;
+
+	private RenderJob pending;
+	private long pendingSince;
+	private RenderJob idle;
+	private boolean shutdown = false;
+
+	private long dropped;
+	private long cancelled;
+	private volatile Consumer<? super RuntimeException> failureHandler = e -> LOGGER.log(Level.SEVERE,
+			"Render job failed", e);
+
+	/**
+	 * Constructs a new RenderScheduler and starts its render thread.
+	 * 
+	 * @param name - Name of the render thread.
+	 */
+	public RenderScheduler(String name) {
+		worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Submits a render job. The job replaces any job that has not started yet
+	 * and cancels the job that is currently rendering.
+	 * 
+	 * @param job - Job to render.
+	 */
+	public synchronized void submit(RenderJob job) {
+		generation.incrementAndGet();
+
+		if (pending != null) {
+			dropped++;
+		}
+		pending = job;
+		pendingSince = System.nanoTime();
+		idle = null;
+		notifyAll();
+	}
+
+	/**
+	 * Submits a job to run once the render thread has nothing else to render.
+	 * The job replaces any idle job that has not started yet, and is itself
+	 * replaced or cancelled by the next submitted job.
+	 * 
+	 * @param job - Job to run while idle.
+	 */
+	public synchronized void submitIdle(RenderJob job) {
+		idle = job;
+		notifyAll();
+	}
+
+	/**
+	 * Sets what is done with the exception of a job that failed without being
+	 * cancelled. The handler is called on the render thread.
+	 * 
+	 * @param failureHandler - Receives the exception of every failed job.
+	 */
+	public void setFailureHandler(Consumer<? super RuntimeException> failureHandler) {
+		this.failureHandler = failureHandler;
+	}
+
+	/**
+	 * Cancels the current and pending jobs and stops the render thread.
+	 */
+	public synchronized void shutdown() {
+		generation.incrementAndGet();
+		pending = null;
+		idle = null;
+		shutdown = true;
+		notifyAll();
+	}
+
+	/**
+	 * Waits for the next pending job, or the idle job when no job is pending.
+	 * 
+	 * @return The next job to render, or null if the scheduler has shut down.
+	 */
+	private synchronized Task take() {
+		while (pending == null && idle == null && !shutdown) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				return null;
+			}
+		}
+
+		if (shutdown) {
+			return null;
+		}
+
+		Task task;
+
+		if (pending != null) {
+			task = new Task(pending, generation.get(), System.nanoTime() - pendingSince, false);
+			pending = null;
+		} else {
+			task = new Task(idle, generation.get(), 0, true);
+			idle = null;
+		}
+		return task;
+	}
+
+	/**
+	 * Returns the number of jobs that were replaced by a newer job before they
+	 * started rendering.
+	 * 
+	 * @return Number of dropped jobs.
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Returns the number of jobs that were cancelled by a newer job while
+	 * they were rendering.
+	 * 
+	 * @return Number of cancelled jobs.
+	 */
+	public synchronized long getCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Render loop of the worker thread.
+	 */
+	private void run() {
+		Task task;
+
+		while ((task = take()) != null) {
+			try {
+				task.job.render(task);
+			} catch (RuntimeException e) {
+				if (!task.isCancelled()) {
+					failureHandler.accept(e);
+				}
+			}
+
+			if (!task.idle && task.isCancelled()) {
+				synchronized (this) {
+					cancelled++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A job that renders a frame on the render thread.
+	 */
+	@FunctionalInterface
+	public interface RenderJob {
+
+		/**
+		 * Renders a frame. Long running jobs should check whether the task is
+		 * cancelled and stop rendering when it is.
+		 * 
+		 * @param task - The task running this job.
+		 */
+		void render(Task task);
+	}
+
+	/**
+	 * A single run of a render job.
+	 */
+	public final class Task {
+
+		private final RenderJob job;
+		private final long generation;
+		private final long waitNanos;
+		private final boolean idle;
+
+		private Task(RenderJob job, long generation, long waitNanos, boolean idle) {
+			this.job = job;
+			this.generation = generation;
+			this.waitNanos = waitNanos;
+			this.idle = idle;
+		}
+
+		/**
+		 * Returns how long the job waited between being submitted and
+		 * starting to render.
+		 * 
+		 * @return Time waited in nanoseconds, zero for idle jobs.
+		 */
+		public long getWaitNanos() {
+			return waitNanos;
+		}
+
+		/**
+		 * Returns whether a newer job has been submitted since this task started.
+		 * 
+		 * @return True if the result of this task is no longer wanted.
+		 */
+		public boolean isCancelled() {
+			return generation != RenderScheduler.this.generation.get();
+		}
+
+		/**
+		 * Submits a job to run once the render thread has nothing else to
+		 * render, unless a newer job has been submitted since this task
+		 * started. The idle job of a stale task is dropped, so it can not
+		 * outlive the job that replaced the task.
+		 * 
+		 * @param job - Job to run while idle.
+		 */
+		public void submitIdle(RenderJob job) {
+			synchronized (RenderScheduler.this) {
+				if (!isCancelled()) {
+					RenderScheduler.this.submitIdle(job);
+				}
+			}
+		}
+
+		/**
+		 * Runs the specified update on the JavaFX application thread unless a
+		 * newer job has been submitted by the time it runs.
+		 * 
+		 * @param update - Update showing the result of this task.
+		 */
+		public void publish(Runnable update) {
+			publish(update, () -> {
+			});
+		}
+
+		/**
+		 * Runs the specified update on the JavaFX application thread unless a
+		 * newer job has been submitted by the time it runs. The completion is
+		 * always run afterwards, also when the update is skipped, so resources
+		 * held for the update can be released.
+		 * 
+		 * @param update - Update showing the result of this task.
+		 * @param completion - Runs after the update or in place of it.
+		 */
+		public void publish(Runnable update, Runnable completion) {
+			if (isCancelled()) {
+				completion.run();
+				return;
+			}
+
+			Platform.runLater(() -> {
+				try {
+					if (!isCancelled()) {
+						update.run();
+					}
+				} finally {
+					completion.run();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.render;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TileCache keeps recently rendered tiles of iteration counts in memory so
+ * views that are visited again are copied instead of generated. The cache is
+ * bounded by the memory its tiles take and evicts the least recently used
+ * tiles first. It counts hits, misses and evictions to tell how well it works.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileCache.java
+ */
+public class TileCache {
+
+	private final LinkedHashMap<TileKey, int[]> tiles = new LinkedHashMap<TileKey, int[]>(16, 0.75f, true);
+	private final long maxBytes;
+
+	private long bytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructs a new TileCache.
+	 * 
+	 * @param maxBytes - Maximum number of bytes of iteration counts to keep.
+	 */
+	public TileCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the iteration counts of a tile and marks it as recently used.
+	 * The returned array must not be modified.
+	 * 
+	 * @param key - Key of the tile.
+	 * @return Iteration counts of the tile, or null if it is not cached.
+	 */
+	public synchronized int[] get(TileKey key) {
+		int[] tile = tiles.get(key);
+
+		if (tile != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return tile;
+	}
+
+	/**
+	 * Returns whether a tile is cached without counting a lookup or marking
+	 * the tile as recently used.
+	 * 
+	 * @param key - Key of the tile.
+	 * @return True if the tile is cached.
+	 */
+	public synchronized boolean contains(TileKey key) {
+		return tiles.containsKey(key);
+	}
+
+	/**
+	 * Stores the iteration counts of a tile, evicting the least recently used
+	 * tiles until the cache fits within its maximum size. The array must not
+	 * be modified after it is stored.
+	 * 
+	 * @param key - Key of the tile.
+	 * @param tile - Iteration counts of the tile.
+	 */
+	public synchronized void put(TileKey key, int[] tile) {
+		int[] old = tiles.put(key, tile);
+
+		if (old != null) {
+			bytes -= sizeOf(old);
+		}
+		bytes += sizeOf(tile);
+
+		Iterator<Map.Entry<TileKey, int[]>> eldest = tiles.entrySet().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= sizeOf(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes every tile from the cache.
+	 */
+	public synchronized void clear() {
+		tiles.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Returns the number of tiles in the cache.
+	 * 
+	 * @return Number of cached tiles.
+	 */
+	public synchronized int size() {
+		return tiles.size();
+	}
+
+	/**
+	 * Returns the number of bytes of iteration counts in the cache.
+	 * 
+	 * @return Bytes used by the cached tiles.
+	 */
+	public synchronized long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the number of lookups that found their tile.
+	 * 
+	 * @return Number of cache hits.
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find their tile.
+	 * 
+	 * @return Number of cache misses.
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of tiles evicted to keep the cache within its size.
+	 * 
+	 * @return Number of evicted tiles.
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the number of bytes a tile takes in the cache.
+	 * 
+	 * @param tile - Iteration counts of the tile.
+	 * @return Size of the tile in bytes.
+	 */
+	private static long sizeOf(int[] tile) {
+		return 4L * tile.length;
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.render;
+
+/**
+ * TileKey identifies a square tile of iteration counts of an escape time
+ * fractal. Tiles lie on a grid that covers the complex plane for a given pixel
+ * size and rotation, so the same tile is found again whenever a frame showing
+ * it is rendered.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileKey.java
+ */
+public final class TileKey {
+
+	private final String fractal;
+	private final double realSeed;
+	private final double imaginarySeed;
+	private final double pixelWidth;
+	private final double pixelHeight;
+	private final double rotation;
+	private final long tileX;
+	private final long tileY;
+	private final int maxIterations;
+
+	/**
+	 * Constructs a new TileKey.
+	 * 
+	 * @param fractal - Name of the fractal.
+	 * @param realSeed - The seed number for the real number.
+	 * @param imaginarySeed - The seed number for the imaginary number.
+	 * @param pixelWidth - Width of a pixel in the complex plane.
+	 * @param pixelHeight - Height of a pixel in the complex plane.
+	 * @param rotation - Rotation of the grid in radians.
+	 * @param tileX - Column of the tile in the grid.
+	 * @param tileY - Row of the tile in the grid.
+	 * @param maxIterations - Maximum number of iterations.
+	 */
+	public TileKey(String fractal, double realSeed, double imaginarySeed, double pixelWidth, double pixelHeight,
+			double rotation, long tileX, long tileY, int maxIterations) {
+		this.fractal = fractal;
+		this.realSeed = realSeed;
+		this.imaginarySeed = imaginarySeed;
+		this.pixelWidth = pixelWidth;
+		this.pixelHeight = pixelHeight;
+		this.rotation = rotation;
+		this.tileX = tileX;
+		this.tileY = tileY;
+		this.maxIterations = maxIterations;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TileKey)) {
+			return false;
+		}
+
+		TileKey other = (TileKey) obj;
+		return tileX == other.tileX && tileY == other.tileY && maxIterations == other.maxIterations
+				&& Double.compare(realSeed, other.realSeed) == 0
+				&& Double.compare(imaginarySeed, other.imaginarySeed) == 0
+				&& Double.compare(pixelWidth, other.pixelWidth) == 0
+				&& Double.compare(pixelHeight, other.pixelHeight) == 0
+				&& Double.compare(rotation, other.rotation) == 0 && fractal.equals(other.fractal);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = fractal.hashCode();
+		hash = 31 * hash + Double.hashCode(realSeed);
+		hash = 31 * hash + Double.hashCode(imaginarySeed);
+		hash = 31 * hash + Double.hashCode(pixelWidth);
+		hash = 31 * hash + Double.hashCode(pixelHeight);
+		hash = 31 * hash + Double.hashCode(rotation);
+		hash = 31 * hash + Long.hashCode(tileX);
+		hash = 31 * hash + Long.hashCode(tileY);
+		hash = 31 * hash + maxIterations;
+		return hash;
+	}
+
+	/**
+	 * Returns the key as a string with all of its parameters.
+	 * 
+	 * @return A string of the key.
+	 */
+	@Override
+	public String toString() {
+		return "TileKey[" + fractal + ", seed=" + realSeed + ", " + imaginarySeed + ", pixel=" + pixelWidth + "x"
+				+ pixelHeight + ", rotation=" + rotation + ", tile=" + tileX + ", " + tileY + ", maxIterations="
+				+ maxIterations + "]";
+	}
+}
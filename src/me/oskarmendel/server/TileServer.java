@@ -0,0 +1,527 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package me.oskarmendel.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.Viewport;
+import me.oskarmendel.render.Colorizer;
+import me.oskarmendel.render.Palette;
+import me.oskarmendel.render.PngStreamWriter;
+
+/**
+ * TileServer serves tiles of Julia Fractals over HTTP in the z/x/y layout of
+ * slippy maps, so web map viewers such as Leaflet can pan and zoom them:
+ * 
+ * <pre>
+ * GET /tiles/{z}/{x}/{y}.png?seed=-0.8,0.156&amp;iterations=200&amp;palette=fire
+ * </pre>
+ * 
+ * Zoom level 0 is a single tile showing the square from -2 - 2i to 2 + 2i,
+ * and every zoom level splits the tiles of the level above in four. Tiles are
+ * rendered on demand and kept PNG encoded in a cache bounded by its size. A
+ * tile asked for again while it is rendering is rendered only once, every
+ * request for it waits for the same render. Tiles never change, so they are
+ * sent with an ETag and may be cached by clients for a year.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name TileServer.java
+ */
+public class TileServer {
+
+	private static final Logger LOGGER = Logger.getLogger(TileServer.class.getName());
+
+	private static final int TILE_SIZE = 256;
+	private static final double WORLD_MIN = -2;
+	private static final double WORLD_SIZE = 4;
+	private static final int MAX_ZOOM = 32;
+	private static final int MAX_ITERATIONS = 100000;
+	private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long maxBytes;
+
+	// Every thread renders with a fractal of its own, on that thread only.
+	private final ThreadLocal<JuliaFractal> fractals = ThreadLocal.withInitial(() -> {
+		JuliaFractal fractal = new JuliaFractal();
+		fractal.setParallelism(1);
+		return fractal;
+	});
+
+	private final ConcurrentHashMap<String, CompletableFuture<EncodedTile>> rendering = new ConcurrentHashMap<String, CompletableFuture<EncodedTile>>();
+	private final LinkedHashMap<String, EncodedTile> tiles = new LinkedHashMap<String, EncodedTile>(16, 0.75f, true);
+	private long bytes;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong renders = new AtomicLong();
+	private final AtomicLong shared = new AtomicLong();
+
+	/**
+	 * Constructs a new TileServer. The server does not accept requests until
+	 * it is started.
+	 * 
+	 * @param port - Port to listen on, or 0 for any free port.
+	 * @param threads - Number of threads to serve and render tiles on.
+	 * @param maxBytes - Maximum number of bytes of encoded tiles to keep.
+	 * @throws IOException if the port could not be opened.
+	 */
+	public TileServer(int port, int threads, long maxBytes) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(port), 0);
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.maxBytes = maxBytes;
+
+		server.createContext("/tiles/", this::handle);
+		server.setExecutor(executor);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 2 * Runtime.getRuntime().availableProcessors();
+		long cacheMegabytes = args.length > 2 ? Long.parseLong(args[2]) : 256;
+		TileServer server = new TileServer(port, threads, cacheMegabytes << 20);
+
+		server.start();
+		System.out.println("Tile server listening on http://localhost:" + server.getPort()
+				+ "/tiles/{z}/{x}/{y}.png?seed=-0.8,0.156 with " + threads + " threads");
+	}
+
+	/**
+	 * Starts accepting requests.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests and waits for the requests being served.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * 
+	 * @return The port.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache.
+	 * 
+	 * @return Number of cache hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of tiles rendered.
+	 * 
+	 * @return Number of rendered tiles.
+	 */
+	public long getRenders() {
+		return renders.get();
+	}
+
+	/**
+	 * Returns the number of requests that waited for a render started by
+	 * another request for the same tile.
+	 * 
+	 * @return Number of shared renders.
+	 */
+	public long getShared() {
+		return shared.get();
+	}
+
+	/**
+	 * Answers a request for a tile.
+	 * 
+	 * @param exchange - The request and its response.
+	 * @throws IOException if the response could not be sent.
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				sendError(exchange, 405, "Only GET and HEAD are supported.");
+				return;
+			}
+
+			Tile tile;
+			try {
+				tile = Tile.parse(exchange.getRequestURI().getPath(), exchange.getRequestURI().getRawQuery());
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, e.getMessage());
+				return;
+			}
+
+			if (tile == null) {
+				sendError(exchange, 404, "Expected /tiles/{z}/{x}/{y}.png");
+				return;
+			}
+
+			String status = "HIT";
+			EncodedTile encoded = cached(tile.key);
+
+			if (encoded == null) {
+				CompletableFuture<EncodedTile> future = new CompletableFuture<EncodedTile>();
+				CompletableFuture<EncodedTile> running = rendering.putIfAbsent(tile.key, future);
+
+				if (running == null) {
+					status = "MISS";
+					encoded = render(tile, future);
+				} else {
+					status = "SHARED";
+					shared.incrementAndGet();
+					encoded = join(running);
+				}
+			} else {
+				hits.incrementAndGet();
+			}
+
+			Headers headers = exchange.getResponseHeaders();
+			headers.set("Content-Type", "image/png");
+			headers.set("Cache-Control", CACHE_CONTROL);
+			headers.set("ETag", encoded.etag);
+			headers.set("X-Cache", status);
+
+			if (encoded.etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+				exchange.sendResponseHeaders(304, -1);
+			} else if (method.equals("HEAD")) {
+				headers.set("Content-Length", Integer.toString(encoded.png.length));
+				exchange.sendResponseHeaders(200, -1);
+			} else {
+				exchange.sendResponseHeaders(200, encoded.png.length);
+
+				try (OutputStream body = exchange.getResponseBody()) {
+					body.write(encoded.png);
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.SEVERE, "Rendering " + exchange.getRequestURI() + " failed", e);
+			sendError(exchange, 500, "Rendering failed.");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Renders a tile that no other request is rendering, stores it in the
+	 * cache and hands it to the requests waiting for it.
+	 * 
+	 * @param tile - The tile to render.
+	 * @param future - Completed with the tile for the waiting requests.
+	 * @return The encoded tile.
+	 * @throws IOException if the tile could not be encoded.
+	 */
+	private EncodedTile render(Tile tile, CompletableFuture<EncodedTile> future) throws IOException {
+		try {
+			// Another request may have finished the tile since the cache was
+			// looked up.
+			EncodedTile encoded = cached(tile.key);
+
+			if (encoded == null) {
+				encoded = encode(tile);
+				renders.incrementAndGet();
+				cache(tile.key, encoded);
+			}
+
+			future.complete(encoded);
+			return encoded;
+		} catch (IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			rendering.remove(tile.key, future);
+		}
+	}
+
+	/**
+	 * Waits for a tile another request is rendering.
+	 * 
+	 * @param running - The render of the other request.
+	 * @return The encoded tile.
+	 * @throws IOException if the other request failed to encode the tile.
+	 */
+	private static EncodedTile join(CompletableFuture<EncodedTile> running) throws IOException {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Renders a tile and encodes it as PNG.
+	 * 
+	 * @param tile - The tile to render.
+	 * @return The encoded tile.
+	 * @throws IOException if the tile could not be encoded.
+	 */
+	private EncodedTile encode(Tile tile) throws IOException {
+		JuliaFractal fractal = fractals.get();
+		int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+
+		fractal.setMaxIterations(tile.maxIterations);
+		fractal.generateStrip(TILE_SIZE, TILE_SIZE, 0, TILE_SIZE, tile.realSeed, tile.imaginarySeed,
+				tile.viewport(), pixels);
+
+		// Tiles are colored on their own, an equalized palette would differ
+		// between neighbouring tiles.
+		Colorizer colorizer = new Colorizer(tile.palette.resize(tile.maxIterations + 1), false);
+		colorizer.colorize(pixels, tile.maxIterations, pixels, null);
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		try (PngStreamWriter writer = new PngStreamWriter(png, TILE_SIZE, TILE_SIZE)) {
+			writer.writeRows(pixels, TILE_SIZE);
+		}
+
+		return new EncodedTile(png.toByteArray());
+	}
+
+	/**
+	 * Returns a tile from the cache and marks it as recently used.
+	 * 
+	 * @param key - Key of the tile.
+	 * @return The encoded tile, or null if it is not cached.
+	 */
+	private synchronized EncodedTile cached(String key) {
+		return tiles.get(key);
+	}
+
+	/**
+	 * Stores a tile in the cache, evicting the least recently used tiles
+	 * until the cache fits within its maximum size.
+	 * 
+	 * @param key - Key of the tile.
+	 * @param tile - The encoded tile.
+	 */
+	private synchronized void cache(String key, EncodedTile tile) {
+		EncodedTile old = tiles.put(key, tile);
+
+		if (old != null) {
+			bytes -= old.png.length;
+		}
+		bytes += tile.png.length;
+
+		Iterator<Map.Entry<String, EncodedTile>> eldest = tiles.entrySet().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= eldest.next().getValue().png.length;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Sends a plain text error response.
+	 * 
+	 * @param exchange - The request and its response.
+	 * @param status - HTTP status code.
+	 * @param message - Message of the response.
+	 * @throws IOException if the response could not be sent.
+	 */
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes("UTF-8");
+
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.getResponseHeaders().set("Cache-Control", "no-store");
+		exchange.sendResponseHeaders(status, body.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * A PNG encoded tile with the ETag identifying its content.
+	 */
+	private static final class EncodedTile {
+
+		final byte[] png;
+		final String etag;
+
+		EncodedTile(byte[] png) {
+			CRC32 crc = new CRC32();
+			crc.update(png);
+
+			this.png = png;
+			this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + png.length + "\"";
+		}
+	}
+
+	/**
+	 * A requested tile and the parameters of the fractal it shows.
+	 */
+	private static final class Tile {
+
+		final int zoom;
+		final long x;
+		final long y;
+		final double realSeed;
+		final double imaginarySeed;
+		final int maxIterations;
+		final Palette palette;
+		final String key;
+
+		private Tile(int zoom, long x, long y, double realSeed, double imaginarySeed, int maxIterations,
+				Palette palette, String paletteName) {
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+			this.realSeed = realSeed;
+			this.imaginarySeed = imaginarySeed;
+			this.maxIterations = maxIterations;
+			this.palette = palette;
+			this.key = zoom + "/" + x + "/" + y + "?" + realSeed + "," + imaginarySeed + "," + maxIterations + ","
+					+ paletteName;
+		}
+
+		/**
+		 * Parses the path and query of a tile request.
+		 * 
+		 * @param path - Path of the request.
+		 * @param query - Raw query of the request, or null.
+		 * @return The tile, or null if the path is not the path of a tile.
+		 * @throws IllegalArgumentException if a parameter is not valid.
+		 */
+		static Tile parse(String path, String query) {
+			String[] parts = path.split("/");
+
+			// "", "tiles", z, x, "y.png"
+			if (parts.length != 5 || !parts[4].endsWith(".png")) {
+				return null;
+			}
+
+			double realSeed = -0.8;
+			double imaginarySeed = 0.156;
+			int maxIterations = 200;
+			String paletteName = "gray";
+			int zoom;
+			long x;
+			long y;
+
+			try {
+				zoom = Integer.parseInt(parts[2]);
+				x = Long.parseLong(parts[3]);
+				y = Long.parseLong(parts[4].substring(0, parts[4].length() - ".png".length()));
+
+				if (query != null) {
+					for (String parameter : query.split("&")) {
+						int equals = parameter.indexOf('=');
+						String name = equals < 0 ? parameter : parameter.substring(0, equals);
+						String value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+
+						switch (name) {
+						case "seed":
+							int comma = value.indexOf(',');
+							if (comma < 0) {
+								throw new IllegalArgumentException("Expected seed=RE,IM: " + value);
+							}
+							realSeed = Double.parseDouble(value.substring(0, comma));
+							imaginarySeed = Double.parseDouble(value.substring(comma + 1));
+							break;
+						case "iterations":
+							maxIterations = Integer.parseInt(value);
+							break;
+						case "palette":
+							paletteName = value;
+							break;
+						default:
+							// Unknown parameters such as cache busters are ignored.
+						}
+					}
+				}
+			} catch (NumberFormatException | UnsupportedEncodingException e) {
+				throw new IllegalArgumentException("Not a number: " + e.getMessage());
+			}
+
+			if (zoom < 0 || zoom > MAX_ZOOM) {
+				throw new IllegalArgumentException("Zoom must be between 0 and " + MAX_ZOOM + ": " + zoom);
+			}
+			if (x < 0 || y < 0 || x >= 1L << zoom || y >= 1L << zoom) {
+				throw new IllegalArgumentException("No tile " + x + ", " + y + " at zoom " + zoom);
+			}
+			if (maxIterations < 1 || maxIterations > MAX_ITERATIONS) {
+				throw new IllegalArgumentException("Iterations must be between 1 and " + MAX_ITERATIONS);
+			}
+			if (Double.isNaN(realSeed) || Double.isInfinite(realSeed) || Double.isNaN(imaginarySeed)
+					|| Double.isInfinite(imaginarySeed)) {
+				throw new IllegalArgumentException("The seed must be finite.");
+			}
+
+			return new Tile(zoom, x, y, realSeed, imaginarySeed, maxIterations, Palette.named(paletteName),
+					paletteName);
+		}
+
+		/**
+		 * Returns the window of the complex plane the tile shows.
+		 * 
+		 * @return Viewport of the tile.
+		 */
+		Viewport viewport() {
+			double size = WORLD_SIZE / (1L << zoom);
+
+			return new Viewport(WORLD_MIN + (x + 0.5) * size, WORLD_MIN + (y + 0.5) * size, size / 2, 0);
+		}
+	}
+}
@@ -24,22 +24,46 @@
 
 package me.oskarmendel.view;
 
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.Parent;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
 import javafx.scene.control.ScrollBar;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.AnchorPane;
 import me.oskarmendel.controller.FractalViewController;
+import me.oskarmendel.fractals.DeepViewport;
+import me.oskarmendel.fractals.DeepZoomRenderer;
 import me.oskarmendel.fractals.Fractal;
+import me.oskarmendel.fractals.IterationHistogram;
 import me.oskarmendel.fractals.JuliaFractal;
+import me.oskarmendel.fractals.MandelbrotFractal;
 import me.oskarmendel.fractals.PythagorasTree;
 import me.oskarmendel.fractals.SierpinskiTriangle;
+import me.oskarmendel.fractals.Viewport;
+import me.oskarmendel.fractals.ViewportRenderer;
 import me.oskarmendel.model.FractalModel;
+import me.oskarmendel.render.Colorizer;
+import me.oskarmendel.render.Palette;
+import me.oskarmendel.render.RenderEvents;
+import me.oskarmendel.render.RenderMetrics;
+import me.oskarmendel.render.RenderScheduler;
+import me.oskarmendel.render.TileCache;
 
 /**
  * View of the Fractal window, constructs and handles the UI for the displaying
@@ -50,20 +74,54 @@ import me.oskarmendel.model.FractalModel;
  * @name FractalView.java
  */
 public class FractalView {
+	private static final Logger LOGGER = Logger.getLogger(FractalView.class.getName());
 	private static final int SCREEN_WIDTH = 800;
 	private static final int SCREEN_HEIGHT = 600;
+	private static final double ZOOM_FACTOR = 0.8;
+	private static final Colorizer[] COLORIZERS = { Colorizer.GRAY, new Colorizer(Palette.GRAY, true),
+			new Colorizer(Palette.FIRE, true) };
+	private static final long TILE_CACHE_BYTES = 128L << 20;
+	private static final double SLIDER_MIN = -1;
+	private static final double SLIDER_MAX = 1;
+	private static final double SEED_STEP = 1.0 / 256;
+	private static final double SLIDER_IMAGINARY_SEED = 0.27015;
+	private static final int PREFETCH_AHEAD = 8;
+	private static final String METRICS_NAME = "me.oskarmendel:type=RenderMetrics,name=FractalView";
 
 	private AnchorPane view;
 	private Canvas canvas;
 	private ImageView imageView;
 
 	private GraphicsContext gc;
-	private Image img;
+	private WritableImage img;
 	private ScrollBar sc;
+	private Label hud;
 
 	private FractalViewController controller;
 	private FractalModel model;
 
+	private final RenderScheduler scheduler = new RenderScheduler("FractalView-render");
+
+	// Two buffers let the next pass render while the last one is copied to screen.
+	private final PixelBufferPool pixelBuffers = new PixelBufferPool(2, SCREEN_WIDTH * SCREEN_HEIGHT);
+
+	private final TileCache tileCache = new TileCache(TILE_CACHE_BYTES);
+
+	private final RenderMetrics metrics = new RenderMetrics(scheduler, tileCache);
+
+	private ViewportRenderer juliaRenderer;
+	private DeepZoomRenderer deepRenderer;
+	private Viewport viewport = Viewport.DEFAULT;
+	private DeepViewport deepViewport = new DeepViewport(Viewport.DEFAULT);
+	private Viewport mandelbrotViewport = MandelbrotFractal.DEFAULT_VIEWPORT.align(SCREEN_WIDTH, SCREEN_HEIGHT);
+	private int[] mandelbrotIterations = new int[SCREEN_WIDTH * SCREEN_HEIGHT];
+	private double realSeed;
+	private double imaginarySeed;
+	private double dragX;
+	private double dragY;
+	private int colorizer;
+	private int direction = 1;
+
 	/**
 	 * Initialze and build the FractalView for the application.
 	 * 
@@ -79,57 +137,378 @@ public class FractalView {
 		view = new AnchorPane();
 		view.setMinSize(SCREEN_WIDTH, SCREEN_HEIGHT);
 
-		imageView = new ImageView();
+		img = new WritableImage(SCREEN_WIDTH, SCREEN_HEIGHT);
+		imageView = new ImageView(img);
 		sc = new ScrollBar();
 		canvas = new Canvas(SCREEN_WIDTH, SCREEN_HEIGHT);
 		gc = canvas.getGraphicsContext2D();
-		
+		hud = new Label();
+		hud.setStyle("-fx-background-color: rgba(0, 0, 0, 0.6); -fx-text-fill: white; -fx-padding: 4;");
+		hud.setMouseTransparent(true);
+		hud.setVisible(false);
+		scheduler.setFailureHandler(this::showFailure);
+		juliaRenderer = new ViewportRenderer(model.getJuliaFractal(), tileCache);
+		deepRenderer = new DeepZoomRenderer(model.getJuliaFractal());
+
+		// Dragging the Julia fractal pans it by whole pixels. The viewport is
+		// kept aligned to the pixel grid so its tiles can be cached, the deep
+		// viewport keeps the center precise once doubles can no longer. The
+		// Mandelbrot set is aligned too so its rows mirror exactly.
+		imageView.setOnMousePressed(e -> {
+			dragX = e.getX();
+			dragY = e.getY();
+
+			// The secondary button switches colors, which colors the current
+			// Julia frame again without generating it.
+			if (e.getButton() == MouseButton.SECONDARY) {
+				colorizer = (colorizer + 1) % COLORIZERS.length;
+				juliaRenderer.setColorizer(COLORIZERS[colorizer]);
+				deepRenderer.setColorizer(COLORIZERS[colorizer]);
+				renderActive();
+			}
+
+			// Double clicking the Mandelbrot set shows the Julia fractal of
+			// the point clicked.
+			if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2 && isMandelbrot()) {
+				double re = mandelbrotViewport.toRe(e.getX(), e.getY(), SCREEN_WIDTH, SCREEN_HEIGHT);
+				double im = mandelbrotViewport.toIm(e.getX(), e.getY(), SCREEN_WIDTH, SCREEN_HEIGHT);
+
+				model.setActiveFractal(model.getJuliaFractal());
+				realSeed = re;
+				imaginarySeed = im;
+				renderJulia();
+			}
+
+			// The middle button shows and hides the render metrics.
+			if (e.getButton() == MouseButton.MIDDLE) {
+				hud.setVisible(!hud.isVisible());
+				updateHud();
+			}
+		});
+		imageView.setOnMouseDragged(e -> {
+			if (!e.isPrimaryButtonDown()) {
+				return;
+			}
+
+			double dx = Math.rint(dragX - e.getX());
+			double dy = Math.rint(dragY - e.getY());
+
+			if (dx != 0 || dy != 0) {
+				dragX -= dx;
+				dragY -= dy;
+
+				if (isMandelbrot()) {
+					mandelbrotViewport = mandelbrotViewport.pan(dx, dy, SCREEN_WIDTH, SCREEN_HEIGHT).align(SCREEN_WIDTH,
+							SCREEN_HEIGHT);
+					renderMandelbrot();
+				} else {
+					setViewport(deepViewport.pan(dx, dy, SCREEN_WIDTH, SCREEN_HEIGHT));
+					renderJulia();
+				}
+			}
+		});
+
+		// Scrolling zooms the fractal around the mouse pointer.
+		imageView.setOnScroll(e -> {
+			if (e.getDeltaY() != 0) {
+				double factor = e.getDeltaY() > 0 ? ZOOM_FACTOR : 1 / ZOOM_FACTOR;
+
+				if (isMandelbrot()) {
+					mandelbrotViewport = mandelbrotViewport.zoom(factor, e.getX(), e.getY(), SCREEN_WIDTH,
+							SCREEN_HEIGHT).align(SCREEN_WIDTH, SCREEN_HEIGHT);
+					renderMandelbrot();
+				} else {
+					setViewport(deepViewport.zoom(factor, e.getX(), e.getY(), SCREEN_WIDTH, SCREEN_HEIGHT));
+					renderJulia();
+				}
+			}
+		});
+
+		sc.setMin(SLIDER_MIN);
+		sc.setMax(SLIDER_MAX);
+
+		// A single listener for the scroll bar renders whichever fractal is active.
+		// The Julia seed snaps to steps of the scroll bar so the seeds next to
+		// it can be rendered ahead of time.
+		sc.valueProperty().addListener((ChangeListener<Number>) (observable, oldValue, newValue) -> {
+			Fractal fractal = model.getActiveFractal().get();
+
+			if (fractal instanceof JuliaFractal) {
+				double seed = Math.rint(newValue.doubleValue() / SEED_STEP) * SEED_STEP;
+
+				if (seed == realSeed && imaginarySeed == SLIDER_IMAGINARY_SEED) {
+					return;
+				}
+				if (seed != realSeed) {
+					direction = seed > realSeed ? 1 : -1;
+				}
+
+				realSeed = seed;
+				imaginarySeed = SLIDER_IMAGINARY_SEED;
+				renderJulia();
+			} else if (fractal instanceof PythagorasTree) {
+				renderTree((PythagorasTree) fractal, newValue.doubleValue());
+			}
+		});
+
 		// Listener for changes in the active fractal
 		model.getActiveFractal().addListener((ChangeListener<Fractal>) (observable, oldValue, newValue) -> {
 			view.getChildren().clear();
 
 			if (newValue.getClass() == JuliaFractal.class) {
-				img = SwingFXUtils.toFXImage(
-						((JuliaFractal) newValue).generateFractal(SCREEN_WIDTH, SCREEN_HEIGHT, 0.285, 0.01), null);
-				imageView.setImage(img);
-				sc.setMin(-1);
-				sc.setMax(1);
-
-				sc.valueProperty().addListener(new ChangeListener<Number>() {
-					@Override
-					public void changed(ObservableValue<? extends Number> obs, Number old_val, Number new_val) {
-						img = SwingFXUtils.toFXImage(((JuliaFractal) newValue).generateFractal(SCREEN_WIDTH,
-								SCREEN_HEIGHT, new_val.doubleValue(), 0.27015), null);
-						imageView.setImage(img);
-					}
-				});
+				realSeed = 0.285;
+				imaginarySeed = 0.01;
+				renderJulia();
 
 				view.getChildren().add(imageView);
 				view.getChildren().add(sc);
+				view.getChildren().add(hud);
+
+			} else if (newValue.getClass() == MandelbrotFractal.class) {
+				renderMandelbrot();
 
+				view.getChildren().add(imageView);
+				view.getChildren().add(hud);
 			} else if (newValue.getClass() == PythagorasTree.class) {
-				gc.clearRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
-				((PythagorasTree) newValue).drawTree(SCREEN_WIDTH, SCREEN_HEIGHT, 0.5, gc);
-				
-				sc.setMin(-1);
-				sc.setMax(1);
-
-				sc.valueProperty().addListener(new ChangeListener<Number>() {
-					@Override
-					public void changed(ObservableValue<? extends Number> obs, Number old_val, Number new_val) {
-						gc.clearRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
-						((PythagorasTree) newValue).drawTree(SCREEN_WIDTH, SCREEN_HEIGHT, new_val.doubleValue(), gc);
-					}
-				});
+				renderTree((PythagorasTree) newValue, 0.5);
 				
 				view.getChildren().add(canvas);
 				view.getChildren().add(sc);
 			} else if (newValue.getClass() == SierpinskiTriangle.class) {
-				gc.clearRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
-				((SierpinskiTriangle) newValue).drawTriangle(SCREEN_WIDTH, SCREEN_HEIGHT, gc);
+				scheduler.submit(task -> task.publish(() -> {
+					gc.clearRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+					((SierpinskiTriangle) newValue).drawTriangle(SCREEN_WIDTH, SCREEN_HEIGHT, gc);
+				}));
 				view.getChildren().add(canvas);
 			}
 		});
+
+		// The metrics can be watched in JMX consoles such as JConsole.
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(METRICS_NAME));
+		} catch (JMException e) {
+			LOGGER.log(Level.WARNING, "Could not register the render metrics", e);
+		}
+	}
+
+	/**
+	 * Moves the Julia fractal to the specified window. Windows that doubles
+	 * can still resolve are aligned to the pixel grid.
+	 * 
+	 * @param deepViewport - The new window of the complex plane.
+	 */
+	private void setViewport(DeepViewport deepViewport) {
+		if (deepViewport.getScale() < DeepZoomRenderer.MIN_VIEWPORT_SCALE) {
+			this.deepViewport = deepViewport;
+			viewport = deepViewport.toViewport();
+		} else {
+			viewport = deepViewport.toViewport().align(SCREEN_WIDTH, SCREEN_HEIGHT);
+			this.deepViewport = new DeepViewport(viewport);
+		}
+	}
+
+	/**
+	 * Renders the Julia fractal in the background. A frame that only pans the
+	 * previous frame reuses its pixels, other frames are rendered from coarse
+	 * to fine and every pass is shown as soon as it is done. A newer render
+	 * cancels this one and hides any of its passes that are not shown yet.
+	 * Passes are rendered into pooled pixel buffers and copied straight into
+	 * the image on screen, the only copy made of every pass. Frames zoomed in
+	 * too far for doubles are rendered with perturbation theory instead.
+	 * 
+	 * Once a frame of a seed chosen with the scroll bar is rendered, the
+	 * frames of the seeds next to it are prefetched until the next render.
+	 * Every frame is recorded in the render metrics.
+	 */
+	private void renderJulia() {
+		double realSeed = this.realSeed;
+		double imaginarySeed = this.imaginarySeed;
+		Viewport viewport = this.viewport;
+		DeepViewport deepViewport = this.deepViewport;
+		int direction = this.direction;
+
+		scheduler.submit(task -> {
+			Consumer<int[]> show = pixels -> task.publish(() -> img.getPixelWriter().setPixels(0, 0, SCREEN_WIDTH,
+					SCREEN_HEIGHT, PixelFormat.getIntArgbPreInstance(), pixels, 0, SCREEN_WIDTH),
+					() -> pixelBuffers.release(pixels));
+			Object event = RenderEvents.beginFrame();
+			long start = System.nanoTime();
+			IterationHistogram histogram = null;
+
+			try {
+				if (deepViewport.getScale() < DeepZoomRenderer.MIN_VIEWPORT_SCALE) {
+					histogram = deepRenderer.render(SCREEN_WIDTH, SCREEN_HEIGHT, realSeed, imaginarySeed,
+							deepViewport, pixelBuffers::acquire, show, task::isCancelled);
+				} else {
+					histogram = juliaRenderer.render(SCREEN_WIDTH, SCREEN_HEIGHT, realSeed, imaginarySeed, viewport,
+							pixelBuffers::acquire, show, task::isCancelled);
+				}
+			} finally {
+				RenderEvents.commitFrame(event, model.getJuliaFractal().toString(), SCREEN_WIDTH, SCREEN_HEIGHT,
+						histogram != null ? histogram.getIterations() : 0, task.getWaitNanos(), histogram == null);
+			}
+
+			metrics.recordFrame(System.nanoTime() - start, task.getWaitNanos(), SCREEN_WIDTH * SCREEN_HEIGHT,
+					histogram.getIterations());
+			task.publish(this::updateHud);
+
+			if (deepViewport.getScale() >= DeepZoomRenderer.MIN_VIEWPORT_SCALE
+					&& imaginarySeed == SLIDER_IMAGINARY_SEED) {
+				task.submitIdle(prefetchTask -> prefetchSeeds(realSeed, viewport, direction,
+						prefetchTask::isCancelled));
+			}
+		});
+	}
+
+	/**
+	 * Renders the Mandelbrot set in the background with the current colors.
+	 * A newer render cancels this one.
+	 */
+	private void renderMandelbrot() {
+		MandelbrotFractal fractal = model.getMandelbrotFractal();
+		Viewport viewport = this.mandelbrotViewport;
+		Colorizer colorizer = COLORIZERS[this.colorizer];
+
+		scheduler.submit(task -> {
+			Object event = RenderEvents.beginFrame();
+			long start = System.nanoTime();
+			IterationHistogram histogram = null;
+
+			try {
+				histogram = fractal.generate(SCREEN_WIDTH, SCREEN_HEIGHT, viewport, mandelbrotIterations,
+						task::isCancelled);
+			} finally {
+				RenderEvents.commitFrame(event, fractal.toString(), SCREEN_WIDTH, SCREEN_HEIGHT,
+						histogram != null ? histogram.getIterations() : 0, task.getWaitNanos(), histogram == null);
+			}
+
+			int[] pixels = colorizer.colorize(mandelbrotIterations, histogram.getMaxIterations(),
+					pixelBuffers.acquire(), null);
+
+			metrics.recordFrame(System.nanoTime() - start, task.getWaitNanos(), SCREEN_WIDTH * SCREEN_HEIGHT,
+					histogram.getIterations());
+			task.publish(() -> {
+				img.getPixelWriter().setPixels(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, PixelFormat.getIntArgbPreInstance(),
+						pixels, 0, SCREEN_WIDTH);
+				updateHud();
+			}, () -> pixelBuffers.release(pixels));
+		});
+	}
+
+	/**
+	 * Renders whichever of the Julia fractal and the Mandelbrot set is shown.
+	 */
+	private void renderActive() {
+		if (isMandelbrot()) {
+			renderMandelbrot();
+		} else {
+			renderJulia();
+		}
+	}
+
+	/**
+	 * Returns whether the Mandelbrot set is the active fractal.
+	 * 
+	 * @return True if the Mandelbrot set is shown.
+	 */
+	private boolean isMandelbrot() {
+		return model.getActiveFractal().get() instanceof MandelbrotFractal;
+	}
+
+	/**
+	 * Logs a render job that failed and shows it in the overlay, which stays
+	 * visible until the next frame replaces the text.
+	 * 
+	 * @param e - The exception the job failed with.
+	 */
+	private void showFailure(RuntimeException e) {
+		LOGGER.log(Level.SEVERE, "Rendering failed", e);
+		Platform.runLater(() -> {
+			hud.setText("Rendering failed: " + e);
+			hud.setVisible(true);
+		});
+	}
+
+	/**
+	 * Shows the metrics of the last frame in the overlay, if it is visible.
+	 */
+	private void updateHud() {
+		if (!hud.isVisible()) {
+			return;
+		}
+
+		String text = String.format(Locale.ROOT,
+				"Frame %.1f ms, %.2f Mpixels/s, %.1f M iterations%n"
+						+ "Queue wait %.1f ms, tile cache hits %.0f%%%n"
+						+ "Frames %d, dropped %d, cancelled %d",
+				metrics.getLastFrameMillis(), metrics.getLastPixelsPerSecond() / 1e6,
+				metrics.getLastIterations() / 1e6, metrics.getLastQueueWaitMillis(),
+				metrics.getTileCacheHitRate() * 100, metrics.getFrames(), metrics.getDroppedFrames(),
+				metrics.getCancelledFrames());
+
+		// Deep frames also show the pixels no reference could render.
+		if (!isMandelbrot() && deepViewport.getScale() < DeepZoomRenderer.MIN_VIEWPORT_SCALE) {
+			text += String.format(Locale.ROOT, "%nExact pixels %d", deepRenderer.getLastExactPixels());
+		}
+		hud.setText(text);
+	}
+
+	/**
+	 * Renders the frames of the scroll bar seeds around the specified seed
+	 * into the tile cache, most of them in the direction the scroll bar last
+	 * moved. Every second seed ahead is followed by one behind, nearest first.
+	 * 
+	 * @param realSeed - Seed of the frame on screen.
+	 * @param viewport - The window of the complex plane on screen.
+	 * @param direction - 1 if the scroll bar last moved up, -1 if down.
+	 * @param cancelled - Returns true once a frame is asked for.
+	 */
+	private void prefetchSeeds(double realSeed, Viewport viewport, int direction, BooleanSupplier cancelled) {
+		double step = Math.rint(realSeed / SEED_STEP);
+
+		for (int i = 1; i <= PREFETCH_AHEAD; i++) {
+			prefetchSeed((step + direction * i) * SEED_STEP, viewport, cancelled);
+
+			if (i % 2 == 0) {
+				prefetchSeed((step - direction * i / 2) * SEED_STEP, viewport, cancelled);
+			}
+		}
+	}
+
+	/**
+	 * Renders the frame of a scroll bar seed into the tile cache, if the seed
+	 * is within the range of the scroll bar.
+	 * 
+	 * @param realSeed - The seed number for the real number.
+	 * @param viewport - The window of the complex plane on screen.
+	 * @param cancelled - Returns true once a frame is asked for.
+	 */
+	private void prefetchSeed(double realSeed, Viewport viewport, BooleanSupplier cancelled) {
+		if (realSeed >= SLIDER_MIN && realSeed <= SLIDER_MAX) {
+			juliaRenderer.prefetch(SCREEN_WIDTH, SCREEN_HEIGHT, realSeed, SLIDER_IMAGINARY_SEED, viewport,
+					cancelled);
+		}
+	}
+
+	/**
+	 * Draws the Pythagoras tree once the render thread gets to it. The tree
+	 * is generated on the render thread and drawn as a single path on the
+	 * JavaFX application thread, the only thread that can draw to the canvas.
+	 * Only the newest angle is drawn when the scroll bar moves faster than the
+	 * tree is drawn.
+	 * 
+	 * @param fractal - PythagorasTree to draw.
+	 * @param angle - Angle of the branches.
+	 */
+	private void renderTree(PythagorasTree fractal, double angle) {
+		scheduler.submit(task -> {
+			double[] tree = fractal.generateTree(SCREEN_WIDTH, SCREEN_HEIGHT, angle);
+
+			task.publish(() -> {
+				gc.clearRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+				fractal.drawTree(tree, gc);
+			});
+		});
 	}
 
 	/**
@@ -0,0 +1,83 @@
+/**
+ * MIT License
+ * 
+ * Copyright (c) 2017 Oskar Mendel
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.oskarmendel.view;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * PixelBufferPool holds a fixed number of ARGB pixel buffers that are reused
+ * from frame to frame. A buffer is taken by the render thread, filled and then
+ * returned by the JavaFX application thread once its pixels are copied into
+ * the image on screen, so rendering does not allocate any pixel memory.
+ * 
+ * @author Oskar Mendel
+ * @version 0.00.00
+ * @name PixelBufferPool.java
+ */
+public class PixelBufferPool {
+
+	private final BlockingQueue<int[]> buffers;
+
+	/**
+	 * Constructs a new pool of pixel buffers.
+	 * 
+	 * @param size - Number of buffers in the pool.
+	 * @param pixels - Number of pixels in every buffer.
+	 */
+	public PixelBufferPool(int size, int pixels) {
+		buffers = new ArrayBlockingQueue<int[]>(size);
+
+		for (int i = 0; i < size; i++) {
+			buffers.add(new int[pixels]);
+		}
+	}
+
+	/**
+	 * Takes a buffer from the pool, waiting until one is returned if every
+	 * buffer is in use.
+	 * 
+	 * @return A pixel buffer.
+	 * @throws CancellationException if the thread was interrupted while waiting.
+	 */
+	public int[] acquire() {
+		try {
+			return buffers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for a pixel buffer");
+		}
+	}
+
+	/**
+	 * Returns a buffer to the pool.
+	 * 
+	 * @param buffer - Buffer taken from this pool.
+	 */
+	public void release(int[] buffer) {
+		buffers.offer(buffer);
+	}
+}